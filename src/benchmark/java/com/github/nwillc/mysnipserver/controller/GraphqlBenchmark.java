@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller;
+
+import com.github.nwillc.mysnipserver.controller.graphql.QueryLimits;
+import com.github.nwillc.mysnipserver.dao.memory.CategoryDao;
+import com.github.nwillc.mysnipserver.dao.memory.SnippetDao;
+import com.github.nwillc.mysnipserver.entity.Category;
+import com.github.nwillc.mysnipserver.util.concurrent.BoundedExecutor;
+import com.github.nwillc.mysnipserver.util.concurrent.VirtualThreads;
+import com.github.nwillc.mysnipserver.util.events.ChangeFeed;
+import com.github.nwillc.mysnipserver.util.http.Compression;
+import com.github.nwillc.mysnipserver.util.http.HttpException;
+import org.pmw.tinylog.Configurator;
+import org.pmw.tinylog.Level;
+import spark.Spark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static com.github.nwillc.mysnipserver.util.rest.Version.versionedPath;
+
+/**
+ * Drives the GraphQL endpoint over HTTP with more concurrent clients than the embedded server has request
+ * threads, against a store that blocks on every query as a remote one does, and reports throughput,
+ * latency and how many requests were shed. Not a unit test, run it with the benchmark task, choosing
+ * platform or virtual workers and optionally their number and queue:
+ * gradlew benchmark -PbenchmarkClass=com.github.nwillc.mysnipserver.controller.GraphqlBenchmark
+ * -PbenchmarkArgs="virtual 200:200"
+ */
+public class GraphqlBenchmark {
+    private static final int CLIENTS = 500;
+    private static final long STORE_MILLIS = 20;
+    private static final long WARMUP_SECONDS = 3;
+    private static final long MEASURE_SECONDS = 10;
+    private static final byte[] QUERY = "{\"query\": \"{ categories { name } }\"}".getBytes(StandardCharsets.UTF_8);
+
+    public static void main(String[] args) throws Exception {
+        final boolean virtual = args.length > 0 && args[0].equals("virtual");
+        final Optional<ThreadFactory> factory = virtual ? VirtualThreads.factory("benchmark-") : Optional.empty();
+        if (virtual && !factory.isPresent()) {
+            System.out.println("No virtual threads on Java " + System.getProperty("java.version"));
+            return;
+        }
+        final String[] spec = args.length > 1 ? args[1].split(":") : new String[]{virtual ? "200" : "16"};
+        final int workers = Integer.parseInt(spec[0]);
+        final int queue = spec.length > 1 ? Integer.parseInt(spec[1]) : virtual ? workers : workers * 4;
+
+        // Logging every query and shed request would measure the log
+        Configurator.currentConfig().level(Level.ERROR).activate();
+        final CategoryDao categoryDao = new CategoryDao() {
+            @Override
+            public Stream<Category> findAll() {
+                pause(STORE_MILLIS);
+                return super.findAll();
+            }
+        };
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Spark.port(port);
+        Spark.exception(HttpException.class, (e, request, response) -> {
+            response.status(((HttpException) e).getCode().code);
+            response.body(e.getMessage());
+        });
+        new Graphql(categoryDao, new SnippetDao(categoryDao), QueryLimits.DEFAULT, Graphql.DEFAULT_MAX_BODY_KB,
+                new ChangeFeed(10), new BoundedExecutor("benchmark", workers, queue, factory), Compression.DEFAULT);
+        Spark.awaitInitialization();
+        // Keep every client's connection alive between its requests
+        System.setProperty("http.maxConnections", Integer.toString(CLIENTS));
+
+        final URL url = new URL("http://localhost:" + port + versionedPath(Graphql.GRAPHQL_PATH));
+        final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        final List<List<Long>> latencies = new ArrayList<>(CLIENTS);
+        final long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        final long measureTo = measureFrom + TimeUnit.SECONDS.toNanos(MEASURE_SECONDS);
+        final CountDownLatch done = new CountDownLatch(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            final List<Long> clientLatencies = new ArrayList<>();
+            latencies.add(clientLatencies);
+            final Thread client = new Thread(() -> {
+                try {
+                    for (long start = System.nanoTime(); start < measureTo; start = System.nanoTime()) {
+                        final int status = post(url);
+                        if (start >= measureFrom) {
+                            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                            clientLatencies.add(System.nanoTime() - start);
+                        }
+                        if (status == 503) {
+                            // As a well behaved client does, honoring Retry-After
+                            pause(TimeUnit.SECONDS.toMillis(1));
+                        }
+                    }
+                } catch (IOException e) {
+                    statuses.computeIfAbsent(-1, s -> new LongAdder()).increment();
+                } finally {
+                    done.countDown();
+                }
+            }, "client-" + i);
+            client.setDaemon(true);
+            client.start();
+        }
+        done.await();
+
+        final List<Long> all = new ArrayList<>();
+        latencies.forEach(all::addAll);
+        Collections.sort(all);
+        final long ok = statuses.getOrDefault(200, new LongAdder()).sum();
+        System.out.printf("%-8s %4d workers %4d queue, %d clients: %6.0f ok/s, shed %6d, other %4d, " +
+                        "p50 %4d ms, p99 %5d ms%n",
+                virtual ? "virtual" : "platform", workers, queue, CLIENTS, ok / (double) MEASURE_SECONDS,
+                statuses.getOrDefault(503, new LongAdder()).sum(),
+                all.size() - ok - statuses.getOrDefault(503, new LongAdder()).sum(),
+                percentile(all, 50), percentile(all, 99));
+        Spark.stop();
+        System.exit(0);
+    }
+
+    private static int post(URL url) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(QUERY);
+        }
+        final int status = connection.getResponseCode();
+        // Read to the end so the connection is kept for the next request
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                final byte[] buffer = new byte[4096];
+                while (in.read(buffer) >= 0) {
+                    // discard
+                }
+            }
+        }
+        return status;
+    }
+
+    private static long percentile(List<Long> sorted, int percent) {
+        return sorted.isEmpty() ? 0 :
+                TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.min(sorted.size() - 1, sorted.size() * percent / 100)));
+    }
+
+    private static void pause(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
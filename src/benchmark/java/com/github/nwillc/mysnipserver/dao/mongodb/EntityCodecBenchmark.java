@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.mongodb;
+
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.mongodb.MongoClient;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares bytes allocated and time taken per snippet decoded and encoded by the direct entity
+ * codec and the JSON mapping. Not a unit test, run it with the benchmark task:
+ * gradlew benchmark -PbenchmarkClass=com.github.nwillc.mysnipserver.dao.mongodb.EntityCodecBenchmark
+ */
+public class EntityCodecBenchmark {
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        final Snippet snippet = new Snippet("java", "Read a file",
+                "try (BufferedReader reader = Files.newBufferedReader(path)) {\n" +
+                        "    reader.lines().forEach(System.out::println);\n}");
+        final Codec<Snippet> direct = EntityCodec.of(Snippet.class, MongoClient.getDefaultCodecRegistry());
+        final Codec<Snippet> json = new EntityCodec.JsonCodec<>(Snippet.class,
+                MongoClient.getDefaultCodecRegistry().get(Document.class));
+        final byte[] bson = encode(direct, snippet);
+
+        for (Codec<Snippet> codec : new Codec[]{json, direct}) {
+            run(codec, bson, WARMUP);
+            final long bytes = allocated();
+            final long start = System.nanoTime();
+            run(codec, bson, ITERATIONS);
+            final long nanos = System.nanoTime() - start;
+            System.out.printf("%-10s decode+encode: %6d bytes/entity %6d ns/entity%n",
+                    codec.getClass().getSimpleName(), (allocated() - bytes) / ITERATIONS, nanos / ITERATIONS);
+        }
+    }
+
+    private static void run(Codec<Snippet> codec, byte[] bson, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            final Snippet decoded = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(bson)),
+                    DecoderContext.builder().build());
+            if (encode(codec, decoded).length != bson.length) {
+                throw new IllegalStateException("Codecs disagree on " + decoded);
+            }
+        }
+    }
+
+    private static byte[] encode(Codec<Snippet> codec, Snippet snippet) {
+        final BasicOutputBuffer buffer = new BasicOutputBuffer(256);
+        codec.encode(new BsonBinaryWriter(buffer), snippet, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
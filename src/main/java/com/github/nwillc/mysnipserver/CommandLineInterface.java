@@ -69,14 +69,65 @@ public final class CommandLineInterface {
         option.setRequired(false);
         options.addOption(option);
 
+        option = new Option(CLI.cache.name().substring(0, 1), CLI.cache.name(), true,
+                "Entity caches, comma separated Entity=size[:ttlSeconds[:LRU|TINY_LFU]], size in entries or kb/mb.");
+        option.setArgName(CLI.cache.name());
+        option.setArgs(1);
+        option.setType(String.class);
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(CLI.limits.name().substring(0, 1), CLI.limits.name(), true,
+                "GraphQL query limits, maxCost[:maxDepth[:defaultListSize[:maxBatch]]].");
+        option.setArgName(CLI.limits.name());
+        option.setArgs(1);
+        option.setType(String.class);
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(CLI.body.name().substring(0, 1), CLI.body.name(), true,
+                "Largest GraphQL request body accepted, in kb, at least 1.");
+        option.setArgName(CLI.body.name());
+        option.setArgs(1);
+        option.setType(Long.class);
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(CLI.workers.name().substring(0, 1), CLI.workers.name(), true,
+                "GraphQL and sign in worker threads and queue, threads[:queue]. Requests beyond these are refused with 503.");
+        option.setArgName(CLI.workers.name());
+        option.setArgs(1);
+        option.setType(String.class);
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(CLI.gzip.name().substring(0, 1), CLI.gzip.name(), true,
+                "Response compression, minBytes[:level], level 1 to 9 or 0 for none.");
+        option.setArgName(CLI.gzip.name());
+        option.setArgs(1);
+        option.setType(String.class);
+        option.setRequired(false);
+        options.addOption(option);
+
+        option = new Option(CLI.virtual.name().substring(0, 1), CLI.virtual.name(), false,
+                "Run GraphQL and sign in workers on virtual threads, where the Java runtime has them.");
+        option.setRequired(false);
+        options.addOption(option);
+
         return options;
     }
 
     enum CLI {
         address,
+        body,
+        cache,
+        gzip,
         help,
+        limits,
         noauth,
         port,
-        store
+        store,
+        virtual,
+        workers
     }
 }
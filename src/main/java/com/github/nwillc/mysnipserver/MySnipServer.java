@@ -17,17 +17,26 @@
 
 package com.github.nwillc.mysnipserver;
 
+import com.github.nwillc.mysnipserver.controller.Graphql;
+import com.github.nwillc.mysnipserver.controller.graphql.QueryLimits;
+import com.github.nwillc.mysnipserver.util.cache.CacheSpec;
 import com.github.nwillc.mysnipserver.util.guice.MemoryBackedModule;
+import com.github.nwillc.mysnipserver.util.http.Compression;
 import com.google.inject.Guice;
 import com.google.inject.Module;
 import org.apache.commons.cli.*;
 import org.pmw.tinylog.Logger;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
 import static com.github.nwillc.mysnipserver.CommandLineInterface.CLI;
 import static spark.Spark.ipAddress;
 import static spark.Spark.port;
 
 public final class MySnipServer {
+    private static final String DEFAULT_CACHES = "Snippet=10000";
 
     public static void main(String[] args) {
         Logger.info("Starting");
@@ -37,6 +46,13 @@ public final class MySnipServer {
 
         Module module = null;
         boolean auth = true;
+        List<CacheSpec> caches = Collections.emptyList();
+        QueryLimits limits = QueryLimits.DEFAULT;
+        Compression compression = Compression.DEFAULT;
+        long maxBodyKb = Graphql.DEFAULT_MAX_BODY_KB;
+        boolean virtual = false;
+        int workers = MySnipServerApplication.DEFAULT_WORKERS;
+        int workerQueue = MySnipServerApplication.DEFAULT_QUEUE;
 
         try {
             CommandLine commandLine = commandLineParser.parse(options, args);
@@ -66,6 +82,38 @@ public final class MySnipServer {
                 module = new MemoryBackedModule();
             }
 
+            final String cacheSpec = commandLine.getOptionValue(CLI.cache.name(),
+                    module instanceof MemoryBackedModule ? "" : DEFAULT_CACHES);
+            caches = parsed(options, CLI.cache, () -> CacheSpec.parse(cacheSpec));
+
+            limits = parsed(options, CLI.limits, () -> QueryLimits.parse(commandLine.getOptionValue(CLI.limits.name())));
+
+            compression = parsed(options, CLI.gzip, () -> Compression.parse(commandLine.getOptionValue(CLI.gzip.name())));
+
+            if (commandLine.hasOption(CLI.body.name())) {
+                maxBodyKb = parsed(options, CLI.body, () -> {
+                    final long kb = Long.parseLong(commandLine.getOptionValue(CLI.body.name()));
+                    if (kb < 1) {
+                        throw new IllegalArgumentException("Body limit must be at least 1kb: " + kb);
+                    }
+                    return kb;
+                });
+            }
+
+            if (commandLine.hasOption(CLI.virtual.name())) {
+                virtual = true;
+                workers = MySnipServerApplication.DEFAULT_VIRTUAL_WORKERS;
+                workerQueue = MySnipServerApplication.DEFAULT_VIRTUAL_QUEUE;
+            }
+
+            if (commandLine.hasOption(CLI.workers.name())) {
+                final String[] spec = commandLine.getOptionValue(CLI.workers.name()).split(":");
+                workers = parsed(options, CLI.workers, () -> Integer.parseInt(spec[0].trim()));
+                workerQueue = spec.length > 1 ?
+                        parsed(options, CLI.workers, () -> Integer.parseInt(spec[1].trim())) :
+                        virtual ? workers : workers * 4;
+            }
+
         } catch (ParseException e) {
             Logger.error("Failed to parse command line: " + e);
             CommandLineInterface.help(options, 1);
@@ -76,7 +124,26 @@ public final class MySnipServer {
 
         MySnipServerApplication application = Guice.createInjector(module).getInstance(MySnipServerApplication.class);
         application.setAuth(auth);
+        application.setCaches(caches);
+        application.setLimits(limits);
+        application.setMaxBodyKb(maxBodyKb);
+        application.setWorkers(workers, workerQueue);
+        application.setVirtual(virtual);
+        application.setCompression(compression);
         application.init();
         Logger.info("Completed");
     }
+
+    /**
+     * An option's value, or help and exit if it can not be parsed.
+     */
+    private static <T> T parsed(Options options, CLI option, Supplier<T> parser) {
+        try {
+            return parser.get();
+        } catch (IllegalArgumentException e) {
+            Logger.error("Failed to parse " + option.name() + ": " + e.getMessage());
+            CommandLineInterface.help(options, 1);
+            throw e;
+        }
+    }
 }
@@ -18,28 +18,64 @@
 package com.github.nwillc.mysnipserver;
 
 import com.github.nwillc.mysnipserver.controller.Authentication;
+import com.github.nwillc.mysnipserver.controller.Changes;
 import com.github.nwillc.mysnipserver.controller.Graphql;
+import com.github.nwillc.mysnipserver.controller.StaticAssets;
+import com.github.nwillc.mysnipserver.controller.graphql.QueryLimits;
+import com.github.nwillc.mysnipserver.dao.cache.CachedDao;
 import com.github.nwillc.mysnipserver.entity.Category;
 import com.github.nwillc.mysnipserver.entity.Snippet;
 import com.github.nwillc.mysnipserver.entity.User;
+import com.github.nwillc.mysnipserver.util.JsonMapper;
+import com.github.nwillc.mysnipserver.util.cache.CacheSpec;
+import com.github.nwillc.mysnipserver.util.cache.CacheStats;
+import com.github.nwillc.mysnipserver.util.cache.Eviction;
+import com.github.nwillc.mysnipserver.util.concurrent.BoundedExecutor;
+import com.github.nwillc.mysnipserver.util.concurrent.VirtualThreads;
+import com.github.nwillc.mysnipserver.util.events.ChangeFeed;
+import com.github.nwillc.mysnipserver.util.http.Compression;
 import com.github.nwillc.mysnipserver.util.http.HttpException;
+import com.github.nwillc.mysnipserver.util.metrics.TimingStats;
 import com.github.nwillc.opa.Dao;
+import com.github.nwillc.opa.HasKey;
 import com.google.inject.Inject;
 import org.pmw.tinylog.Logger;
 import spark.servlet.SparkApplication;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
 import java.util.stream.Collectors;
 
+import static com.github.nwillc.mysnipserver.util.rest.Version.versionedPath;
 import static spark.Spark.*;
 
-public class MySnipServerApplication implements SparkApplication {
+public class MySnipServerApplication implements SparkApplication, JsonMapper {
     private static final String ADMIN = "nwillc@gmail.com";
-    private final Dao<String, Category> categoriesDao;
-    private final Dao<String, Snippet> snippetDao;
-    private final Dao<String, User> userDao;
+    public static final int DEFAULT_WORKERS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_QUEUE = DEFAULT_WORKERS * 4;
+    // Virtual workers cost little while blocked, and waiting requests hold no thread, so allow many more
+    // workers but queue no more than one more round of them so requests are refused before they wait long
+    public static final int DEFAULT_VIRTUAL_WORKERS = 200;
+    public static final int DEFAULT_VIRTUAL_QUEUE = DEFAULT_VIRTUAL_WORKERS;
+    private static final int CHANGES_RETAINED = 1000;
+    private static final CacheSpec USER_CACHE = new CacheSpec(User.class.getSimpleName(), 1000, false, 60, Eviction.TINY_LFU);
+    private Dao<String, Category> categoriesDao;
+    private Dao<String, Snippet> snippetDao;
+    private Dao<String, User> userDao;
     private boolean auth;
+    private List<CacheSpec> caches = Collections.emptyList();
+    private QueryLimits limits = QueryLimits.DEFAULT;
+    private long maxBodyKb = Graphql.DEFAULT_MAX_BODY_KB;
+    private int workers = DEFAULT_WORKERS;
+    private int workerQueue = DEFAULT_QUEUE;
+    private boolean virtual;
+    private Compression compression = Compression.DEFAULT;
     private String properties = "";
 
     @Inject
@@ -71,13 +107,21 @@ public class MySnipServerApplication implements SparkApplication {
         // Static files
         staticFileLocation("/public");
 
+        // Caches
+        categoriesDao = cached(categoriesDao, Category.class, null, false);
+        snippetDao = cached(snippetDao, Snippet.class, null, false);
+        // Logins look users up by name, remember the misses too so unknown names don't reach the store
+        userDao = cached(userDao, User.class, USER_CACHE, true);
+
         // Create controllers
 
         if (auth) {
-            new Authentication(userDao);
+            new Authentication(userDao, workers("auth.workers"));
         }
+        final ChangeFeed changeFeed = new ChangeFeed(CHANGES_RETAINED);
+        new Changes(changeFeed);
         try {
-            new Graphql(categoriesDao, snippetDao);
+            new Graphql(categoriesDao, snippetDao, limits, maxBodyKb, changeFeed, workers("graphql.workers"), compression);
         } catch (Exception e) {
             Logger.error("Failed instantiating GraphGL Controller: " + e.getMessage(), e);
         }
@@ -85,6 +129,16 @@ public class MySnipServerApplication implements SparkApplication {
         // Specific routes
         get("/ping", (request, response) -> "PONG");
         get("/properties", (request, response) -> properties);
+        get(versionedPath("stats"), (request, response) -> {
+            response.type("application/json");
+            final Map<String, Object> stats = new LinkedHashMap<>(CacheStats.all());
+            stats.putAll(TimingStats.all());
+            stats.putAll(BoundedExecutor.all());
+            return stats;
+        }, this::toJson);
+
+        // Precompressed static files, last as they match any path left
+        new StaticAssets("/public", compression);
 
         exception(HttpException.class, (e, request, response) -> {
             response.status(((HttpException) e).getCode().code);
@@ -99,4 +153,60 @@ public class MySnipServerApplication implements SparkApplication {
         Logger.info("Setting authentication to: " + auth);
         this.auth = auth;
     }
+
+    public void setCaches(List<CacheSpec> caches) {
+        Logger.info("Setting caches to: " + caches);
+        this.caches = caches;
+    }
+
+    public void setLimits(QueryLimits limits) {
+        Logger.info("Setting query limits to: " + limits);
+        this.limits = limits;
+    }
+
+    public void setMaxBodyKb(long maxBodyKb) {
+        Logger.info("Setting maximum GraphQL body to: " + maxBodyKb + "kb");
+        this.maxBodyKb = maxBodyKb;
+    }
+
+    public void setWorkers(int workers, int workerQueue) {
+        Logger.info("Setting workers to: " + workers + " with a queue of " + workerQueue);
+        this.workers = workers;
+        this.workerQueue = workerQueue;
+    }
+
+    public void setVirtual(boolean virtual) {
+        Logger.info("Setting workers virtual to: " + virtual);
+        this.virtual = virtual;
+    }
+
+    public void setCompression(Compression compression) {
+        Logger.info("Setting compression to: " + compression);
+        this.compression = compression;
+    }
+
+    /**
+     * Workers for requests that wait on the store or other services, so that the request threads do not.
+     */
+    private BoundedExecutor workers(String name) {
+        final Optional<ThreadFactory> factory = virtual ? VirtualThreads.factory(name + '-') : Optional.empty();
+        if (virtual && !factory.isPresent()) {
+            Logger.warn("Virtual threads unavailable on Java " + System.getProperty("java.version") +
+                    ", using platform threads");
+        }
+        return new BoundedExecutor(name, workers, workerQueue, factory);
+    }
+
+    private <T extends HasKey<String>> Dao<String, T> cached(Dao<String, T> dao, Class<T> tClass,
+                                                             CacheSpec defaultSpec, boolean misses) {
+        final String name = tClass.getSimpleName();
+        final CacheSpec spec = caches.stream()
+                .filter(s -> s.getEntity().equalsIgnoreCase(name))
+                .findFirst()
+                .orElse(defaultSpec);
+        if (spec == null) {
+            return dao;
+        }
+        return new CachedDao<>(dao, spec.newCache(name), misses ? spec.newCache(name + ".misses") : null);
+    }
 }
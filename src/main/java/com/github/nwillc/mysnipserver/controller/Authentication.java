@@ -20,11 +20,12 @@ package com.github.nwillc.mysnipserver.controller;
 import com.github.nwillc.mysnipserver.entity.User;
 import com.github.nwillc.mysnipserver.util.GoogleIdTokenUtil;
 import com.github.nwillc.mysnipserver.util.JsonMapper;
+import com.github.nwillc.mysnipserver.util.concurrent.BoundedExecutor;
+import com.github.nwillc.mysnipserver.util.http.AsyncDispatch;
 import com.github.nwillc.mysnipserver.util.http.HttpStatusCode;
 import com.github.nwillc.mysnipserver.util.http.HttpException;
 import com.github.nwillc.opa.Dao;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken.Payload;
-import com.google.inject.Inject;
 import org.pmw.tinylog.Logger;
 import spark.Request;
 import spark.Response;
@@ -34,6 +35,8 @@ import spark.Spark;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.github.nwillc.mysnipserver.util.rest.Params.*;
 import static com.github.nwillc.mysnipserver.util.rest.Version.versionedPath;
@@ -53,12 +56,14 @@ public class Authentication implements JsonMapper {
             "/properties",
             versionedPath(AUTH_PATH)
     };
+    private static final String RETRY_AFTER_SECONDS = "1";
     private final Dao<String, User> dao;
+    private final BoundedExecutor workers;
     private final Collection<String> noAuth = new HashSet<>();
 
-    @Inject
-    public Authentication(Dao<String, User> dao) {
+    public Authentication(Dao<String, User> dao, BoundedExecutor workers) {
         this.dao = dao;
+        this.workers = workers;
         before(this::check);
         for (String path : NO_AUTH) {
             noAuth(path);
@@ -104,22 +109,62 @@ public class Authentication implements JsonMapper {
         return Boolean.TRUE;
     }
 
-    private Boolean googleAuth(Request request, Response response) {
-        Optional<Payload> payload;
+    /**
+     * Sign in with a Google ID token. Verifying the token and finding the user wait on Google and the
+     * store, so they run on a worker and the request thread is released until the outcome is known.
+     */
+    private Object googleAuth(Request request, Response response) {
+        final Optional<CompletableFuture<Boolean>> verified = AsyncDispatch.dispatched(request);
+        if (verified.isPresent()) {
+            return signIn(verified.get(), request);
+        }
+        final String token = TOKEN.from(request);
+        final CompletableFuture<Boolean> verifying;
         try {
-            payload = GoogleIdTokenUtil.verify(TOKEN.from(request));
-        } catch (Exception e) {
-            throw new HttpException(HttpStatusCode.UNAUTHORIZED, "Failed decoding payload", e);
+            verifying = workers.submit(() -> verify(token));
+        } catch (RejectedExecutionException e) {
+            Logger.warn("Shedding Google auth: " + e.getMessage());
+            response.header("Retry-After", RETRY_AFTER_SECONDS);
+            throw new HttpException(HttpStatusCode.SERVICE_UNAVAILABLE, "Server busy, retry shortly.");
         }
+        return AsyncDispatch.later(request, verifying);
+    }
 
-        payload.orElseThrow(() -> new HttpException(HttpStatusCode.UNAUTHORIZED, "Rejected"));
-        Logger.info("Google auth: " + payload.get().getEmail());
-        dao.findOne(payload.get().getEmail()).orElseThrow(() -> new HttpException(HttpStatusCode.UNAUTHORIZED, "Not registered user"));
+    private static Boolean signIn(CompletableFuture<Boolean> verified, Request request) {
+        final boolean loggedIn = verified.handle((success, failure) -> {
+            if (failure != null) {
+                Logger.warn("Google auth failed: " + failure);
+            }
+            return failure == null && success;
+        }).join();
+        if (!loggedIn) {
+            throw new HttpException(HttpStatusCode.UNAUTHORIZED);
+        }
         Session session = request.session(true);
         session.attribute(IS_LOGGED_IN, Boolean.TRUE);
         return Boolean.TRUE;
     }
 
+    private boolean verify(String token) {
+        final Optional<Payload> payload;
+        try {
+            payload = GoogleIdTokenUtil.verify(token);
+        } catch (Exception e) {
+            Logger.warn("Failed decoding payload: " + e);
+            return false;
+        }
+        if (!payload.isPresent()) {
+            Logger.warn("Google auth rejected");
+            return false;
+        }
+        Logger.info("Google auth: " + payload.get().getEmail());
+        if (!dao.findOne(payload.get().getEmail()).isPresent()) {
+            Logger.warn("Not registered user: " + payload.get().getEmail());
+            return false;
+        }
+        return true;
+    }
+
     private void noAuth(String path) {
         Logger.info("No authentication required for: " + path);
         noAuth.add(path);
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller;
+
+import com.github.nwillc.mysnipserver.util.JsonMapper;
+import com.github.nwillc.mysnipserver.util.events.Change;
+import com.github.nwillc.mysnipserver.util.events.ChangeFeed;
+import org.pmw.tinylog.Logger;
+import spark.Request;
+import spark.Response;
+import spark.Spark;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.nwillc.mysnipserver.util.rest.Version.versionedPath;
+
+/**
+ * A feed of saved and deleted entities as Server-Sent Events. Connections are held with asynchronous
+ * servlet requests and written with non-blocking output, so an idle connection holds no thread and a slow
+ * one does not hold up the others. Each change is serialized once and the same event queued for every
+ * connection, in the order the feed delivers them.
+ */
+public class Changes implements JsonMapper {
+    static final String CHANGES_PATH = "changes";
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final long HEARTBEAT_SECONDS = 30;
+    private static final int MAX_PENDING = 100;
+    private static final long NO_EVENT = -1;
+    private final ChangeFeed feed;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    public Changes(ChangeFeed feed) {
+        this.feed = feed;
+        final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "changes-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleAtFixedRate(() -> subscribers.forEach(subscriber -> subscriber.send(HEARTBEAT)),
+                HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        feed.subscribe(this::broadcast);
+        Spark.get(versionedPath(CHANGES_PATH), this::changes);
+    }
+
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void broadcast(Change change) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        final byte[] event = event(change);
+        subscribers.forEach(subscriber -> subscriber.send(event));
+    }
+
+    private Object changes(Request request, Response response) throws IOException {
+        response.type("text/event-stream");
+        response.header("Cache-Control", "no-cache");
+        // Commit the headers now, Spark writes no body to a committed response
+        response.raw().flushBuffer();
+        final AsyncContext context = request.raw().startAsync();
+        context.setTimeout(0);
+        final Subscriber subscriber = new Subscriber(context, context.getResponse().getOutputStream());
+        context.addListener(subscriber);
+        subscriber.start(lastEventId(request));
+        Logger.info("Change subscribers: " + subscribers.size());
+        return "";
+    }
+
+    /**
+     * The last event a reconnecting client saw, or a negative number for a new client.
+     */
+    private static long lastEventId(Request request) {
+        try {
+            final String id = request.headers(LAST_EVENT_ID);
+            return id == null ? NO_EVENT : Long.parseLong(id.trim());
+        } catch (NumberFormatException e) {
+            return NO_EVENT;
+        }
+    }
+
+    private byte[] event(Change change) {
+        return ("id: " + change.getId() + "\nevent: change\ndata: " + toJson(change) + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One connection, with the events waiting for it to be ready for more output.
+     */
+    private final class Subscriber implements WriteListener, AsyncListener {
+        private final AsyncContext context;
+        private final ServletOutputStream out;
+        private final Queue<byte[]> pending = new ArrayDeque<>();
+        private boolean unflushed;
+        private boolean closed;
+
+        Subscriber(AsyncContext context, ServletOutputStream out) {
+            this.context = context;
+            this.out = out;
+        }
+
+        /**
+         * Start sending, first with the changes a reconnecting client missed. The feed holds back new
+         * changes until this joins the broadcast, so none are missed or sent twice.
+         */
+        void start(long lastEventId) {
+            synchronized (this) {
+                out.setWriteListener(this);
+            }
+            // A new client has missed nothing
+            feed.replay(lastEventId < 0 ? Long.MAX_VALUE : lastEventId, missed -> {
+                missed.forEach(change -> send(event(change)));
+                join();
+            });
+        }
+
+        private synchronized void join() {
+            if (!closed) {
+                subscribers.add(this);
+            }
+        }
+
+        synchronized void send(byte[] bytes) {
+            if (closed) {
+                return;
+            }
+            if (pending.size() >= MAX_PENDING) {
+                Logger.warn("Dropping slow change subscriber");
+                close();
+                return;
+            }
+            pending.add(bytes);
+            drain();
+        }
+
+        @Override
+        public synchronized void onWritePossible() {
+            drain();
+        }
+
+        private void drain() {
+            try {
+                while (!closed && out.isReady()) {
+                    final byte[] next = pending.poll();
+                    if (next != null) {
+                        out.write(next);
+                        unflushed = true;
+                    } else if (unflushed) {
+                        unflushed = false;
+                        out.flush();
+                    } else {
+                        return;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            close();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+            subscribers.remove(this);
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                Logger.debug("Change subscriber already complete: " + e);
+            }
+        }
+    }
+}
@@ -17,12 +17,38 @@
 
 package com.github.nwillc.mysnipserver.controller;
 
+import com.github.nwillc.mysnipserver.controller.graphql.QueryLimits;
+import com.github.nwillc.mysnipserver.dao.cache.QueryResultCache;
 import com.github.nwillc.mysnipserver.entity.Category;
 import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.github.nwillc.mysnipserver.util.events.ChangeFeed;
 import com.github.nwillc.opa.Dao;
 
+import java.util.Optional;
+
 public interface DaoProvider {
     Dao<String, Category> getCategoryDao();
 
     Dao<String, Snippet> getSnippetDao();
+
+    /**
+     * The cache of snippet query results, if there is one.
+     */
+    default Optional<QueryResultCache<String>> getSnippetQueryCache() {
+        return Optional.empty();
+    }
+
+    /**
+     * The feed mutations publish their changes to, if there is one.
+     */
+    default Optional<ChangeFeed> getChangeFeed() {
+        return Optional.empty();
+    }
+
+    /**
+     * The page size used for a page asked for with after but no first, the list size query costs assume.
+     */
+    default int getDefaultPageSize() {
+        return QueryLimits.DEFAULT.getDefaultListSize();
+    }
 }
@@ -17,41 +17,118 @@
 
 package com.github.nwillc.mysnipserver.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.nwillc.mysnipserver.controller.graphql.DocumentCache;
+import com.github.nwillc.mysnipserver.controller.graphql.GraphqlRequest;
+import com.github.nwillc.mysnipserver.controller.graphql.PersistedQueries;
+import com.github.nwillc.mysnipserver.controller.graphql.QueryCost;
+import com.github.nwillc.mysnipserver.controller.graphql.QueryLimits;
 import com.github.nwillc.mysnipserver.controller.graphql.schema.SnippetSchema;
+import com.github.nwillc.mysnipserver.dao.cache.QueryResultCache;
 import com.github.nwillc.mysnipserver.entity.Category;
 import com.github.nwillc.mysnipserver.entity.Snippet;
 import com.github.nwillc.mysnipserver.util.JsonMapper;
+import com.github.nwillc.mysnipserver.util.cache.BoundedCache;
+import com.github.nwillc.mysnipserver.util.cache.CacheStats;
+import com.github.nwillc.mysnipserver.util.cache.Eviction;
+import com.github.nwillc.mysnipserver.util.concurrent.BoundedExecutor;
+import com.github.nwillc.mysnipserver.util.events.ChangeFeed;
+import com.github.nwillc.mysnipserver.util.http.AsyncDispatch;
+import com.github.nwillc.mysnipserver.util.http.Compression;
 import com.github.nwillc.mysnipserver.util.http.HttpStatusCode;
 import com.github.nwillc.mysnipserver.util.http.HttpException;
+import com.github.nwillc.mysnipserver.util.http.LimitedInputStream;
 import com.github.nwillc.opa.Dao;
 import graphql.ExecutionResult;
-import graphql.GraphQL;
 import org.pmw.tinylog.Logger;
 import spark.Request;
 import spark.Response;
 import spark.Spark;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static com.github.nwillc.mysnipserver.util.rest.Version.versionedPath;
 
 public class Graphql implements JsonMapper, DaoProvider {
+    public static final long DEFAULT_MAX_BODY_KB = 1024;
     static final String GRAPHQL_PATH = "graphql";
     private static final String QUERY = "query";
     private static final String ERRORS = "errors";
     private static final String DATA = "data";
-    private final GraphQL graphql;
+    private static final String VARIABLES = "variables";
+    private static final String OPERATION_NAME = "operationName";
+    private static final String EXTENSIONS = "extensions";
+    private static final String COST = "cost";
+    private static final String PERSISTED_QUERY = "persistedQuery";
+    private static final String SHA256_HASH = "sha256Hash";
+    private static final String PERSISTED_QUERY_NOT_FOUND = "PersistedQueryNotFound";
+    private static final String CLIENT_SCRIPT = "/public/scripts/app.js";
+    private static final long PERSISTED_QUERY_CHARS = 256 * 1024;
+    private static final long QUERY_CACHE_KEYS = 100_000;
+    private static final long QUERY_CACHE_TTL = TimeUnit.MINUTES.toMillis(5);
+    private static final long DOCUMENT_CACHE_CHARS = 512 * 1024;
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final String CACHE_CONTROL = "Cache-Control";
+    // Results are for the signed in user, so only their browser may keep them, and must check they are current
+    private static final String PRIVATE_REVALIDATE = "private, no-cache";
+    private static final String ETAG = "ETag";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final int NOT_MODIFIED = 304;
+    private final DocumentCache documents;
+    private final QueryLimits limits;
+    private final long maxBodyBytes;
+    private final ChangeFeed changeFeed;
+    private final BoundedExecutor workers;
+    private final Compression compression;
+    private final PersistedQueries persistedQueries = new PersistedQueries(PERSISTED_QUERY_CHARS);
     private final Dao<String, Category> categoryDao;
     private final Dao<String, Snippet> snippetDao;
+    private final QueryResultCache<String> snippetQueryCache = new QueryResultCache<>(new BoundedCache<>(
+            QUERY_CACHE_KEYS, keys -> 1 + keys.size(), QUERY_CACHE_TTL, Eviction.TINY_LFU,
+            CacheStats.named("snippets.results")));
 
     public Graphql(Dao<String,Category> categoryDao,
-                   Dao<String, Snippet> snippetDao) throws IllegalAccessException, NoSuchMethodException, InstantiationException {
+                   Dao<String, Snippet> snippetDao,
+                   QueryLimits limits,
+                   long maxBodyKb,
+                   ChangeFeed changeFeed,
+                   BoundedExecutor workers,
+                   Compression compression) throws IllegalAccessException, NoSuchMethodException, InstantiationException {
         this.categoryDao = categoryDao;
         this.snippetDao = snippetDao;
-        graphql = new GraphQL(new SnippetSchema().getSchema());
-        Spark.post(versionedPath(GRAPHQL_PATH), this::graphql, this::toJson);
+        this.limits = limits;
+        if (maxBodyKb < 1) {
+            throw new IllegalArgumentException("Body limit must be at least 1kb: " + maxBodyKb);
+        }
+        maxBodyBytes = maxBodyKb * 1024;
+        this.changeFeed = changeFeed;
+        this.workers = workers;
+        this.compression = compression;
+        documents = new DocumentCache(new SnippetSchema().getSchema(), DOCUMENT_CACHE_CHARS);
+        persistedQueries.seedFromScript(CLIENT_SCRIPT);
+        Spark.post(versionedPath(GRAPHQL_PATH), this::graphql);
+        Spark.get(versionedPath(GRAPHQL_PATH), this::graphqlGet);
     }
 
     @Override
@@ -64,24 +141,369 @@ public class Graphql implements JsonMapper, DaoProvider {
         return snippetDao;
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> graphql(Request request, Response response) {
-        Map<String, Object> payload;
+    @Override
+    public Optional<QueryResultCache<String>> getSnippetQueryCache() {
+        return Optional.of(snippetQueryCache);
+    }
+
+    @Override
+    public Optional<ChangeFeed> getChangeFeed() {
+        return Optional.of(changeFeed);
+    }
+
+    @Override
+    public int getDefaultPageSize() {
+        return limits.getDefaultListSize();
+    }
+
+    /**
+     * A POST request, parsed as it is read from the body, refusing bodies over the size limit. The body
+     * is either one operation or a batch of them in an array.
+     */
+    private Object graphql(Request request, Response response) throws IOException {
+        final long length = request.raw().getContentLengthLong();
+        if (length > maxBodyBytes) {
+            throw new HttpException(HttpStatusCode.PAYLOAD_TOO_LARGE, "Body larger than " + maxBodyBytes + " bytes");
+        }
+        final Object parsed;
+        try (InputStream body = new LimitedInputStream(unwrapped(request).getInputStream(), maxBodyBytes);
+             JsonParser parser = getMapper().getFactory().createParser(body)) {
+            parsed = parser.nextToken() == JsonToken.START_ARRAY ?
+                    getMapper().readValue(parser, GraphqlRequest[].class) :
+                    getMapper().readValue(parser, GraphqlRequest.class);
+        } catch (LimitedInputStream.LimitExceededException e) {
+            throw new HttpException(HttpStatusCode.PAYLOAD_TOO_LARGE, e.getMessage());
+        } catch (IOException e) {
+            if (e.getCause() instanceof LimitedInputStream.LimitExceededException) {
+                throw new HttpException(HttpStatusCode.PAYLOAD_TOO_LARGE, e.getCause().getMessage());
+            }
+            throw new HttpException(HttpStatusCode.BAD_REQUEST, "Could not parse request body as GraphQL request.");
+        }
+        if (parsed instanceof GraphqlRequest[]) {
+            return batch((GraphqlRequest[]) parsed, request, response);
+        }
+        final Operation operation = prepare((GraphqlRequest) parsed, false);
+        if (operation.answer != null) {
+            return respond(operation.answer, request, response);
+        }
+        return respondLater(onWorker(operation::execute, response), request, response);
+    }
+
+    /**
+     * Start an operation on a worker, shedding it with a 503 when the workers and their queue are full.
+     */
+    private CompletableFuture<Map<String, Object>> onWorker(Supplier<Map<String, Object>> operation,
+                                                           Response response) {
+        try {
+            return workers.submit(operation);
+        } catch (RejectedExecutionException e) {
+            throw busy(e, response);
+        }
+    }
+
+    /**
+     * Execute a batch of operations, answering with their results in the same order. The operations share
+     * one cost limit, and the whole batch is admitted to the workers or none of it is. Queries run
+     * concurrently, but a batch with a mutation runs in order on one worker, so each operation sees the
+     * changes of those before it. Once admitted a failure in one operation is reported in its own result.
+     */
+    private Object batch(GraphqlRequest[] requests, Request request, Response response) throws IOException {
+        refuse(limits.checkBatch(requests.length, 0));
+        final List<Operation> operations = Arrays.stream(requests).map(this::prepareBatched)
+                .collect(Collectors.toList());
+        refuse(limits.checkBatch(requests.length, operations.stream().mapToLong(operation -> operation.cost).sum()));
+        final List<Operation> pending = operations.stream().filter(operation -> operation.answer == null)
+                .collect(Collectors.toList());
+        final CompletableFuture<List<Map<String, Object>>> executed;
         try {
-            payload = getMapper().readValue(request.body(), Map.class);
+            if (pending.stream().anyMatch(Operation::isMutation)) {
+                executed = workers.submit(() -> pending.stream().map(Graphql::executeIsolated)
+                        .collect(Collectors.toList()));
+            } else {
+                final List<CompletableFuture<Map<String, Object>>> executing = workers.submitAll(pending.stream()
+                        .map(operation -> (Supplier<Map<String, Object>>) operation::execute)
+                        .collect(Collectors.toList())).stream()
+                        .map(future -> future.exceptionally(Graphql::failed))
+                        .collect(Collectors.toList());
+                executed = CompletableFuture.allOf(executing.toArray(new CompletableFuture<?>[executing.size()]))
+                        .thenApply(done -> executing.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+            }
+        } catch (RejectedExecutionException e) {
+            throw busy(e, response);
+        }
+        return respondLater(executed.thenApply(results -> {
+            final Iterator<Map<String, Object>> next = results.iterator();
+            return operations.stream().map(operation -> operation.answer != null ? operation.answer : next.next())
+                    .collect(Collectors.toList());
+        }), request, response);
+    }
+
+    private static void refuse(Optional<String> refusal) {
+        if (refusal.isPresent()) {
+            Logger.warn("Refused: " + refusal.get());
+            throw new HttpException(HttpStatusCode.BAD_REQUEST, refusal.get());
+        }
+    }
+
+    private static Map<String, Object> executeIsolated(Operation operation) {
+        try {
+            return operation.execute();
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    private Operation prepareBatched(GraphqlRequest request) {
+        try {
+            return prepare(request, false);
+        } catch (HttpException e) {
+            return new Operation(error(e.getMessage()));
+        }
+    }
+
+    private static HttpException busy(RejectedExecutionException e, Response response) {
+        Logger.warn("Shedding GraphQL request: " + e.getMessage());
+        response.header("Retry-After", RETRY_AFTER_SECONDS);
+        return new HttpException(HttpStatusCode.SERVICE_UNAVAILABLE, "Server busy, retry shortly.");
+    }
+
+    private static Map<String, Object> failed(Throwable throwable) {
+        final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ?
+                throwable.getCause() : throwable;
+        Logger.error("GraphQL operation failed: " + cause);
+        return error(cause instanceof HttpException ? cause.getMessage() : "Operation failed: " + cause);
+    }
+
+    private static Map<String, Object> error(String message) {
+        return Collections.singletonMap(ERRORS, Collections.singletonList(Collections.singletonMap("message", message)));
+    }
+
+    /**
+     * The container's own request. Spark's embedded server wraps requests in one that reads the whole body
+     * into a byte array on first access, which is what streaming the body avoids.
+     */
+    private static ServletRequest unwrapped(Request request) {
+        ServletRequest raw = request.raw();
+        while (raw instanceof ServletRequestWrapper) {
+            raw = ((ServletRequestWrapper) raw).getRequest();
+        }
+        return raw;
+    }
+
+    /**
+     * A GET request, with the variables and extensions as JSON parameters, for queries only. The result is
+     * tagged with a hash of its body, so a client repeating the query when nothing it shows has changed,
+     * whoever changed the data, is told so without the body being sent again.
+     */
+    private Object graphqlGet(Request request, Response response) throws IOException {
+        final Optional<CompletableFuture<byte[]>> executed = AsyncDispatch.dispatched(request);
+        if (executed.isPresent()) {
+            return respondTagged(executed.get(), request, response);
+        }
+        final GraphqlRequest graphqlRequest;
+        try {
+            graphqlRequest = new GraphqlRequest(request.queryParams(QUERY), request.queryParams(OPERATION_NAME),
+                    jsonParam(request, VARIABLES), jsonParam(request, EXTENSIONS));
         } catch (IOException e) {
-            throw new HttpException(HttpStatusCode.BAD_REQUEST, "Could not parse request body as GraphQL map.");
+            throw new HttpException(HttpStatusCode.BAD_REQUEST, "Could not parse GraphQL parameters as JSON.");
+        }
+        final Operation operation = prepare(graphqlRequest, true);
+        if (operation.answer != null) {
+            return respond(operation.answer, request, response);
+        }
+        // The worker renders the body too, the request thread only hashes and writes it
+        return AsyncDispatch.later(request, onWorker(operation::execute, response).thenApply(result -> {
+            final ByteArrayOutputStream json = new ByteArrayOutputStream();
+            writeJson(result, json);
+            return json.toByteArray();
+        }));
+    }
+
+    private Object respondTagged(CompletableFuture<byte[]> executed, Request request, Response response) {
+        final byte[] json;
+        try {
+            json = executed.join();
+        } catch (CompletionException e) {
+            return respond(failed(e), request, response);
         }
-        Map<String, Object> variables = (Map<String, Object>) payload.get("variables");
-        Logger.info(QUERY + ": " + payload.get(QUERY));
-        ExecutionResult executionResult = graphql.execute(payload.get(QUERY).toString(), null, this, variables);
-        Map<String, Object> result = new LinkedHashMap<>();
-        if (!executionResult.getErrors().isEmpty()) {
-            result.put(ERRORS, executionResult.getErrors());
-            Logger.error("Errors: {}", executionResult.getErrors());
+        final String etag = "W/\"" + PersistedQueries.sha256(json) + '"';
+        response.header(CACHE_CONTROL, PRIVATE_REVALIDATE);
+        response.header(ETAG, etag);
+        if (etag.equals(request.headers(IF_NONE_MATCH))) {
+            response.status(NOT_MODIFIED);
+            return "";
         }
-        result.put(DATA, executionResult.getData());
+        return respond(out -> out.write(json), request, response);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> jsonParam(Request request, String name) throws IOException {
+        final String value = request.queryParams(name);
+        return value == null ? null : getMapper().readValue(value, Map.class);
+    }
+
+    /**
+     * Stream a result straight to the response, so the JSON is never held whole in memory, gzipped once it
+     * passes the compression threshold if the client accepts that. The empty body returned leaves Spark
+     * nothing more to write.
+     */
+    private Object respond(Object result, Request request, Response response) {
+        return respond(out -> writeJson(result, out), request, response);
+    }
+
+    private Object respond(Body body, Request request, Response response) {
         response.type("application/json");
-        return result;
+        try {
+            final OutputStream raw = response.raw().getOutputStream();
+            if (compression.isEnabled()) {
+                response.header(Compression.VARY, Compression.ACCEPT_ENCODING);
+            }
+            if (!compression.accepts(request.raw())) {
+                body.writeTo(raw);
+                return "";
+            }
+            // Closing flushes and so commits the response, leaving Spark nothing to gzip again
+            try (OutputStream out = compression.wrap(raw,
+                    () -> response.header(Compression.CONTENT_ENCODING, Compression.GZIP))) {
+                body.writeTo(out);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Writing GraphQL response", e);
+        }
+        return "";
+    }
+
+    /**
+     * Answer with a result the workers are still working out, without holding the request thread while
+     * they do. The headers are committed now, gzip chosen by what the client accepts as the size is not
+     * yet known, and the result is written and the request completed by the worker finishing it.
+     */
+    private Object respondLater(CompletableFuture<?> result, Request request, Response response) throws IOException {
+        response.type("application/json");
+        if (compression.isEnabled()) {
+            response.header(Compression.VARY, Compression.ACCEPT_ENCODING);
+        }
+        final boolean gzip = compression.accepts(request.raw());
+        if (gzip) {
+            response.header(Compression.CONTENT_ENCODING, Compression.GZIP);
+        }
+        // Commit the headers now, Spark writes no body to a committed response
+        response.raw().flushBuffer();
+        final AsyncContext context = request.raw().startAsync();
+        // The worker always completes the request, whether the operation succeeded or not
+        context.setTimeout(0);
+        result.whenComplete((value, failure) -> {
+            try (OutputStream out = gzip ? compression.gzip(context.getResponse().getOutputStream()) :
+                    context.getResponse().getOutputStream()) {
+                writeJson(failure == null ? value : failed(failure), out);
+            } catch (IOException | RuntimeException e) {
+                Logger.warn("Failed writing GraphQL response: " + e);
+            } finally {
+                context.complete();
+            }
+        });
+        return "";
+    }
+
+    /**
+     * Check an operation on the request thread, so that a bad request is refused with its status before
+     * the response is committed, and one too costly to run is answered without taking a worker.
+     */
+    private Operation prepare(GraphqlRequest request, boolean safe) {
+        final Optional<String> hash = persistedHash(request.getExtensions());
+        String query = request.getQuery();
+        if (query == null && hash.isPresent()) {
+            query = persistedQueries.find(hash.get()).orElse(null);
+            if (query == null) {
+                return new Operation(error(PERSISTED_QUERY_NOT_FOUND));
+            }
+        } else if (query == null) {
+            throw new HttpException(HttpStatusCode.BAD_REQUEST, "No GraphQL query or persisted query hash.");
+        } else if (hash.isPresent() && !persistedQueries.register(hash.get(), query)) {
+            throw new HttpException(HttpStatusCode.BAD_REQUEST, "Persisted query hash does not match query.");
+        }
+        Logger.info(QUERY + ": " + query);
+        final DocumentCache.Prepared prepared = documents.prepare(query);
+        if (safe && prepared.isMutation()) {
+            throw new HttpException(HttpStatusCode.METHOD_NOT_ALLOWED, "Mutations must be POSTed.");
+        }
+        Map<String, Object> extensions = null;
+        long cost = 0;
+        if (prepared.isValid()) {
+            final QueryCost queryCost = QueryCost.of(documents.getSchema(), prepared.getDocument(),
+                    request.getOperationName(), request.getVariables(), limits.getDefaultListSize());
+            cost = queryCost.getCost();
+            extensions = Collections.singletonMap(COST, limits.report(queryCost));
+            final Optional<String> refusal = limits.check(queryCost);
+            if (refusal.isPresent()) {
+                Logger.warn("Refused: " + refusal.get());
+                final Map<String, Object> result = new LinkedHashMap<>(error(refusal.get()));
+                result.put(EXTENSIONS, extensions);
+                return new Operation(result);
+            }
+        }
+        return new Operation(prepared, request, extensions, cost);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Optional<String> persistedHash(Map<String, Object> extensions) {
+        if (extensions == null || !(extensions.get(PERSISTED_QUERY) instanceof Map)) {
+            return Optional.empty();
+        }
+        final Object hash = ((Map<String, Object>) extensions.get(PERSISTED_QUERY)).get(SHA256_HASH);
+        return hash == null ? Optional.empty() : Optional.of(hash.toString());
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * A prepared operation, either answered already or ready to execute at its estimated cost.
+     */
+    private final class Operation {
+        private final Map<String, Object> answer;
+        private final DocumentCache.Prepared prepared;
+        private final GraphqlRequest request;
+        private final Map<String, Object> extensions;
+        private final long cost;
+
+        Operation(Map<String, Object> answer) {
+            this(answer, null, null, null, 0);
+        }
+
+        Operation(DocumentCache.Prepared prepared, GraphqlRequest request, Map<String, Object> extensions,
+                  long cost) {
+            this(null, prepared, request, extensions, cost);
+        }
+
+        private Operation(Map<String, Object> answer, DocumentCache.Prepared prepared, GraphqlRequest request,
+                          Map<String, Object> extensions, long cost) {
+            this.answer = answer;
+            this.prepared = prepared;
+            this.request = request;
+            this.extensions = extensions;
+            this.cost = cost;
+        }
+
+        boolean isMutation() {
+            return prepared.isMutation();
+        }
+
+        Map<String, Object> execute() {
+            final ExecutionResult executionResult = documents.execute(prepared, request.getOperationName(),
+                    Graphql.this, request.getVariables());
+            final Map<String, Object> result = new LinkedHashMap<>();
+            if (!executionResult.getErrors().isEmpty()) {
+                result.put(ERRORS, executionResult.getErrors());
+                Logger.error("Errors: {}", executionResult.getErrors());
+            }
+            result.put(DATA, executionResult.getData());
+            if (extensions != null) {
+                result.put(EXTENSIONS, extensions);
+            }
+            return result;
+        }
     }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller;
+
+import com.github.nwillc.mysnipserver.util.http.Compression;
+import org.eclipse.jetty.http.MimeTypes;
+import org.pmw.tinylog.Logger;
+import spark.Request;
+import spark.Response;
+import spark.Spark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Serves the static files from memory, loaded and gzipped once at startup, so no request compresses
+ * them again. Paths it does not know fall through to Spark's own static file handling.
+ */
+public class StaticAssets {
+    private static final String INDEX = "index.html";
+    private static final String DEFAULT_TYPE = "application/octet-stream";
+    private static final String ETAG = "ETag";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final int NOT_MODIFIED = 304;
+    private final Compression compression;
+    private final Map<String, Asset> assets;
+
+    public StaticAssets(String folder, Compression compression) {
+        this.compression = compression;
+        assets = load(folder, compression);
+        final long size = assets.values().stream().mapToLong(asset -> asset.bytes.length).sum();
+        final long gzipped = assets.values().stream().mapToLong(asset -> asset.size(true)).sum();
+        Logger.info("Static assets: " + assets.size() + " files, " + size + " bytes, " + gzipped + " gzipped");
+        Spark.get("/*", this::asset);
+    }
+
+    /**
+     * Read every file under the folder on the classpath, from a directory or a jar.
+     */
+    static Map<String, Asset> load(String folder, Compression compression) {
+        final Map<String, Asset> assets = new HashMap<>();
+        final URL url = StaticAssets.class.getResource(folder);
+        if (url == null) {
+            Logger.warn("No static assets at " + folder);
+            return assets;
+        }
+        final MimeTypes mimeTypes = new MimeTypes();
+        try {
+            final URI uri = url.toURI();
+            try (FileSystem jar = "jar".equals(uri.getScheme()) ?
+                    FileSystems.newFileSystem(uri, Collections.emptyMap()) : null) {
+                final Path root = jar == null ? Paths.get(uri) : jar.getPath(folder);
+                try (Stream<Path> paths = Files.walk(root)) {
+                    for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                        final String name = '/' + root.relativize(path).toString().replace('\\', '/');
+                        final String type = mimeTypes.getMimeByExtension(name);
+                        final byte[] bytes = Files.readAllBytes(path);
+                        assets.put(name, new Asset(type == null ? DEFAULT_TYPE : type, bytes,
+                                compression.compress(bytes)));
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            Logger.warn("Could not load static assets from " + folder + ": " + e);
+            return new HashMap<>();
+        }
+        return assets;
+    }
+
+    private Object asset(Request request, Response response) throws IOException {
+        final String path = request.pathInfo();
+        final Asset asset = assets.get(path.endsWith("/") ? path + INDEX : path);
+        if (asset == null || response.raw().isCommitted()) {
+            // Unknown, left to the static file handler, or already answered by a filter
+            return asset == null ? null : "";
+        }
+        final boolean gzip = asset.gzipped != null && compression.accepts(request.raw());
+        final String etag = asset.etag(gzip);
+        response.type(asset.type);
+        response.header(ETAG, etag);
+        if (asset.gzipped != null) {
+            response.header(Compression.VARY, Compression.ACCEPT_ENCODING);
+        }
+        if (etag.equals(request.headers(IF_NONE_MATCH))) {
+            response.status(NOT_MODIFIED);
+            response.raw().flushBuffer();
+            return "";
+        }
+        if (gzip) {
+            response.header(Compression.CONTENT_ENCODING, Compression.GZIP);
+        }
+        final byte[] body = gzip ? asset.gzipped : asset.bytes;
+        response.raw().setContentLength(body.length);
+        // Writing and flushing commits the response, so Spark adds nothing, nor gzips it again
+        final OutputStream out = response.raw().getOutputStream();
+        out.write(body);
+        out.flush();
+        return "";
+    }
+
+    static final class Asset {
+        private final String type;
+        private final byte[] bytes;
+        private final byte[] gzipped;
+        private final String etag;
+
+        Asset(String type, byte[] bytes, byte[] gzipped) {
+            this.type = type;
+            this.bytes = bytes;
+            this.gzipped = gzipped;
+            final CRC32 crc = new CRC32();
+            crc.update(bytes);
+            etag = Long.toHexString(crc.getValue()) + '-' + Integer.toHexString(bytes.length);
+        }
+
+        String etag(boolean gzip) {
+            return '"' + etag + (gzip ? "-gzip\"" : "\"");
+        }
+
+        long size(boolean gzip) {
+            return gzip && gzipped != null ? gzipped.length : bytes.length;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        byte[] getGzipped() {
+            return gzipped;
+        }
+    }
+}
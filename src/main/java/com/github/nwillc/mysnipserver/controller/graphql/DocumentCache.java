@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller.graphql;
+
+import com.github.nwillc.mysnipserver.util.cache.BoundedCache;
+import com.github.nwillc.mysnipserver.util.cache.CacheStats;
+import com.github.nwillc.mysnipserver.util.cache.Eviction;
+import com.github.nwillc.mysnipserver.util.metrics.TimingStats;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.GraphQLError;
+import graphql.InvalidSyntaxError;
+import graphql.execution.Execution;
+import graphql.language.Document;
+import graphql.language.OperationDefinition;
+import graphql.language.SourceLocation;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.validation.ValidationError;
+import graphql.validation.Validator;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes GraphQL queries against a schema, keeping the parsed and validated document of each query
+ * text so that a repeated query skips parsing and validation. Only valid documents are kept, weighed by the
+ * length of their query text.
+ */
+public final class DocumentCache {
+    private final GraphQLSchema schema;
+    private final BoundedCache<String, Parsed> documents;
+    private final TimingStats parsing = TimingStats.named("graphql.parse");
+    private final TimingStats validating = TimingStats.named("graphql.validate");
+
+    /**
+     * @param schema        the schema queries are validated and executed against
+     * @param maximumLength the most query text, in characters, to keep documents for
+     */
+    public DocumentCache(GraphQLSchema schema, long maximumLength) {
+        this.schema = schema;
+        documents = new BoundedCache<>(maximumLength, parsed -> parsed.length, 0, Eviction.TINY_LFU,
+                CacheStats.named("graphql.documents"));
+    }
+
+    /**
+     * The parsed and validated document for some query text, or the syntax or validation errors in it.
+     */
+    public Prepared prepare(String query) {
+        final Parsed cached = documents.getIfPresent(query);
+        if (cached != null) {
+            return new Prepared(cached.document, Collections.emptyList());
+        }
+        final long stamp = documents.stamp();
+        final Document document;
+        try {
+            document = parsing.time(() -> new Parser().parseDocument(query));
+        } catch (ParseCancellationException e) {
+            return new Prepared(null, Collections.singletonList(syntaxError(e)));
+        }
+        final List<ValidationError> errors = validating.time(() -> new Validator().validateDocument(schema, document));
+        if (!errors.isEmpty()) {
+            return new Prepared(null, errors);
+        }
+        documents.put(query, new Parsed(document, query.length()), stamp);
+        return new Prepared(document, Collections.emptyList());
+    }
+
+    public ExecutionResult execute(String query, String operationName, Object context, Map<String, Object> variables) {
+        return execute(prepare(query), operationName, context, variables);
+    }
+
+    public ExecutionResult execute(Prepared prepared, String operationName, Object context,
+                                   Map<String, Object> variables) {
+        if (!prepared.isValid()) {
+            return new ExecutionResultImpl(prepared.getErrors());
+        }
+        return new Execution(null).execute(schema, context, prepared.getDocument(), operationName,
+                variables == null ? Collections.emptyMap() : variables);
+    }
+
+    public GraphQLSchema getSchema() {
+        return schema;
+    }
+
+    private static GraphQLError syntaxError(ParseCancellationException e) {
+        if (e.getCause() instanceof RecognitionException
+                && ((RecognitionException) e.getCause()).getOffendingToken() != null) {
+            final RecognitionException cause = (RecognitionException) e.getCause();
+            return new InvalidSyntaxError(new SourceLocation(cause.getOffendingToken().getLine(),
+                    cause.getOffendingToken().getCharPositionInLine()));
+        }
+        return new InvalidSyntaxError(Collections.emptyList());
+    }
+
+    private static final class Parsed {
+        private final Document document;
+        private final int length;
+
+        private Parsed(Document document, int length) {
+            this.document = document;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A document ready to execute, or the errors found preparing it.
+     */
+    public static final class Prepared {
+        private final Document document;
+        private final List<GraphQLError> errors;
+
+        Prepared(Document document, List<? extends GraphQLError> errors) {
+            this.document = document;
+            this.errors = Collections.unmodifiableList(errors);
+        }
+
+        public boolean isValid() {
+            return document != null;
+        }
+
+        public Document getDocument() {
+            return document;
+        }
+
+        public List<GraphQLError> getErrors() {
+            return errors;
+        }
+
+        /**
+         * Whether the document holds a mutation, and so must not be run by a safe request.
+         */
+        public boolean isMutation() {
+            return isValid() && document.getDefinitions().stream()
+                    .anyMatch(definition -> definition instanceof OperationDefinition
+                            && ((OperationDefinition) definition).getOperation() == OperationDefinition.Operation.MUTATION);
+        }
+    }
+}
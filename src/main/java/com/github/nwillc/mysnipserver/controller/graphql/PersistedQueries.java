@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller.graphql;
+
+import com.github.nwillc.mysnipserver.util.cache.BoundedCache;
+import com.github.nwillc.mysnipserver.util.cache.CacheStats;
+import com.github.nwillc.mysnipserver.util.cache.Eviction;
+import org.pmw.tinylog.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A registry of query texts by their SHA-256 hash, so that clients can send the hash in place of the
+ * query. Queries seeded at startup are kept for ever, those registered by clients are bounded by their
+ * total length.
+ */
+public final class PersistedQueries {
+    private static final Pattern SCRIPT_QUERY = Pattern.compile("new graphql\\.Graphql\\(\\w+, \"((?:[^\"\\\\]|\\\\.)*)\"\\)");
+    private final Map<String, String> seeded = new ConcurrentHashMap<>();
+    private final BoundedCache<String, String> registered;
+
+    /**
+     * @param maximumLength the most query text, in characters, registered by clients to keep
+     */
+    public PersistedQueries(long maximumLength) {
+        registered = new BoundedCache<>(maximumLength, String::length, 0, Eviction.LRU,
+                CacheStats.named("graphql.persisted"));
+    }
+
+    /**
+     * Seed with the queries a client script passes to its Graphql objects.
+     *
+     * @param resource the class path resource of the script
+     * @return the number of queries seeded
+     */
+    public int seedFromScript(String resource) {
+        final InputStream stream = PersistedQueries.class.getResourceAsStream(resource);
+        if (stream == null) {
+            Logger.warn("No script " + resource + " to seed persisted queries from");
+            return 0;
+        }
+        final String script;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            script = reader.lines().collect(Collectors.joining("\n"));
+        } catch (IOException e) {
+            Logger.error("Failed reading " + resource + ": " + e.getMessage(), e);
+            return 0;
+        }
+        int count = 0;
+        final Matcher matcher = SCRIPT_QUERY.matcher(script);
+        while (matcher.find()) {
+            seed(matcher.group(1).replaceAll("\\\\(.)", "$1"));
+            count++;
+        }
+        Logger.info("Seeded " + count + " persisted queries from " + resource);
+        return count;
+    }
+
+    public String seed(String query) {
+        final String hash = sha256(query);
+        seeded.put(hash, query);
+        return hash;
+    }
+
+    /**
+     * Register a query a client sent along with its hash, provided the hash is correct.
+     */
+    public boolean register(String hash, String query) {
+        if (!sha256(query).equalsIgnoreCase(hash)) {
+            return false;
+        }
+        if (!seeded.containsKey(hash.toLowerCase())) {
+            registered.put(hash.toLowerCase(), query);
+        }
+        return true;
+    }
+
+    public Optional<String> find(String hash) {
+        final String key = hash.toLowerCase();
+        final String query = seeded.get(key);
+        return Optional.ofNullable(query != null ? query : registered.getIfPresent(key));
+    }
+
+    public static String sha256(String query) {
+        return sha256(query.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String sha256(byte[] bytes) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller.graphql;
+
+import graphql.language.Argument;
+import graphql.language.ArrayValue;
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
+import graphql.language.IntValue;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.language.VariableReference;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLNonNull;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeReference;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Static cost and depth of a query, computed from its document before it runs. Every field costs one,
+ * and the fields selected below a list are multiplied by the list's expected length: its first argument,
+ * the length of a list argument, or a default.
+ */
+public final class QueryCost {
+    private static final String FIRST = "first";
+    private final long cost;
+    private final int depth;
+
+    private QueryCost(long cost, int depth) {
+        this.cost = cost;
+        this.depth = depth;
+    }
+
+    /**
+     * The cost of the operation that would be executed from a valid document.
+     */
+    public static QueryCost of(GraphQLSchema schema, Document document, String operationName,
+                               Map<String, Object> variables, int defaultListSize) {
+        final Analysis analysis = new Analysis(schema, document, variables, defaultListSize);
+        final Optional<OperationDefinition> operation = document.getDefinitions().stream()
+                .filter(definition -> definition instanceof OperationDefinition)
+                .map(definition -> (OperationDefinition) definition)
+                .filter(definition -> operationName == null || operationName.equals(definition.getName()))
+                .findFirst();
+        if (!operation.isPresent()) {
+            return new QueryCost(0, 0);
+        }
+        final GraphQLType root = operation.get().getOperation() == OperationDefinition.Operation.MUTATION ?
+                schema.getMutationType() : schema.getQueryType();
+        final QueryCost cost = analysis.selections(root, operation.get().getSelectionSet(), 1);
+        return new QueryCost(cost.cost, cost.depth);
+    }
+
+    public long getCost() {
+        return cost;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCost{cost=" + cost + ", depth=" + depth + '}';
+    }
+
+    private static final class Analysis {
+        private final GraphQLSchema schema;
+        private final Map<String, FragmentDefinition> fragments;
+        private final Map<String, Object> variables;
+        private final int defaultListSize;
+
+        Analysis(GraphQLSchema schema, Document document, Map<String, Object> variables, int defaultListSize) {
+            this.schema = schema;
+            this.variables = variables == null ? Collections.emptyMap() : variables;
+            this.defaultListSize = defaultListSize;
+            fragments = document.getDefinitions().stream()
+                    .filter(definition -> definition instanceof FragmentDefinition)
+                    .map(definition -> (FragmentDefinition) definition)
+                    .collect(Collectors.toMap(FragmentDefinition::getName, f -> f, (a, b) -> a));
+        }
+
+        QueryCost selections(GraphQLType parent, SelectionSet selectionSet, int level) {
+            long cost = 0;
+            int depth = 0;
+            if (selectionSet == null) {
+                return new QueryCost(cost, depth);
+            }
+            for (Selection selection : selectionSet.getSelections()) {
+                final QueryCost selected;
+                if (selection instanceof Field) {
+                    selected = field(parent, (Field) selection, level);
+                } else if (selection instanceof InlineFragment) {
+                    final InlineFragment fragment = (InlineFragment) selection;
+                    selected = selections(fragment.getTypeCondition() == null ? parent :
+                            schema.getType(fragment.getTypeCondition().getName()), fragment.getSelectionSet(), level);
+                } else if (selection instanceof FragmentSpread && fragments.containsKey(((FragmentSpread) selection).getName())) {
+                    final FragmentDefinition fragment = fragments.get(((FragmentSpread) selection).getName());
+                    selected = selections(schema.getType(fragment.getTypeCondition().getName()),
+                            fragment.getSelectionSet(), level);
+                } else {
+                    continue;
+                }
+                cost += selected.cost;
+                depth = Math.max(depth, selected.depth);
+            }
+            return new QueryCost(cost, depth);
+        }
+
+        private QueryCost field(GraphQLType parent, Field field, int level) {
+            final GraphQLFieldDefinition definition = parent instanceof GraphQLFieldsContainer ?
+                    ((GraphQLFieldsContainer) parent).getFieldDefinition(field.getName()) : null;
+            GraphQLType type = definition == null ? null : resolve(definition.getType());
+            long multiplier = 1;
+            if (type instanceof GraphQLList) {
+                multiplier = listSize(field);
+                type = resolve(((GraphQLList) type).getWrappedType());
+            }
+            final QueryCost children = selections(type, field.getSelectionSet(), level + 1);
+            return new QueryCost(1 + multiplier * children.cost, Math.max(level, children.depth));
+        }
+
+        private GraphQLType resolve(GraphQLType type) {
+            if (type instanceof GraphQLNonNull) {
+                return resolve(((GraphQLNonNull) type).getWrappedType());
+            }
+            if (type instanceof GraphQLTypeReference) {
+                return schema.getType(type.getName());
+            }
+            return type;
+        }
+
+        private long listSize(Field field) {
+            for (Argument argument : field.getArguments()) {
+                final Object value = value(argument);
+                if (FIRST.equals(argument.getName()) && value instanceof Number) {
+                    return Math.max(0, ((Number) value).longValue());
+                }
+            }
+            for (Argument argument : field.getArguments()) {
+                final Object value = value(argument);
+                if (value instanceof List) {
+                    return ((List<?>) value).size();
+                }
+            }
+            return defaultListSize;
+        }
+
+        private Object value(Argument argument) {
+            if (argument.getValue() instanceof VariableReference) {
+                return variables.get(((VariableReference) argument.getValue()).getName());
+            }
+            if (argument.getValue() instanceof IntValue) {
+                return ((IntValue) argument.getValue()).getValue();
+            }
+            if (argument.getValue() instanceof ArrayValue) {
+                return ((ArrayValue) argument.getValue()).getValues();
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller.graphql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The most cost and depth a query may have before it is refused, the length assumed for lists
+ * with no first argument, and the most operations a batch may have. A batch's operations share one
+ * cost limit. Parsed from specifications such as "5000:10:100:10".
+ */
+public final class QueryLimits {
+    public static final QueryLimits DEFAULT = new QueryLimits(5000, 10, 100, 10);
+    private final long maxCost;
+    private final int maxDepth;
+    private final int defaultListSize;
+    private final int maxBatch;
+
+    public QueryLimits(long maxCost, int maxDepth, int defaultListSize, int maxBatch) {
+        if (maxCost < 1 || maxDepth < 1 || defaultListSize < 0 || maxBatch < 1) {
+            throw new IllegalArgumentException("Query limits must be positive: " + maxCost + ':' + maxDepth + ':'
+                    + defaultListSize + ':' + maxBatch);
+        }
+        this.maxCost = maxCost;
+        this.maxDepth = maxDepth;
+        this.defaultListSize = defaultListSize;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Parse maxCost[:maxDepth[:defaultListSize[:maxBatch]]], taking omitted values from the defaults.
+     */
+    public static QueryLimits parse(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            return DEFAULT;
+        }
+        final String[] parts = spec.trim().split(":");
+        if (parts.length > 4) {
+            throw new IllegalArgumentException("Bad query limits: " + spec);
+        }
+        try {
+            return new QueryLimits(Long.parseLong(parts[0]),
+                    parts.length > 1 ? Integer.parseInt(parts[1]) : DEFAULT.maxDepth,
+                    parts.length > 2 ? Integer.parseInt(parts[2]) : DEFAULT.defaultListSize,
+                    parts.length > 3 ? Integer.parseInt(parts[3]) : DEFAULT.maxBatch);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad query limits: " + spec, e);
+        }
+    }
+
+    /**
+     * Why a query of the given cost is refused, if it is.
+     */
+    public Optional<String> check(QueryCost cost) {
+        if (cost.getDepth() > maxDepth) {
+            return Optional.of("Query depth " + cost.getDepth() + " exceeds the limit of " + maxDepth + '.');
+        }
+        if (cost.getCost() > maxCost) {
+            return Optional.of("Query cost " + cost.getCost() + " exceeds the limit of " + maxCost + '.');
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Why a batch of operations is refused, if it is, given their summed cost.
+     */
+    public Optional<String> checkBatch(int operations, long cost) {
+        if (operations > maxBatch) {
+            return Optional.of("Batch of " + operations + " operations exceeds the limit of " + maxBatch + '.');
+        }
+        if (cost > maxCost) {
+            return Optional.of("Batch cost " + cost + " exceeds the limit of " + maxCost + '.');
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The cost of a query alongside these limits, as reported to clients.
+     */
+    public Map<String, Object> report(QueryCost cost) {
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("cost", cost.getCost());
+        report.put("maxCost", maxCost);
+        report.put("depth", cost.getDepth());
+        report.put("maxDepth", maxDepth);
+        return report;
+    }
+
+    public long getMaxCost() {
+        return maxCost;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getDefaultListSize() {
+        return defaultListSize;
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    @Override
+    public String toString() {
+        return maxCost + ":" + maxDepth + ':' + defaultListSize + ':' + maxBatch;
+    }
+}
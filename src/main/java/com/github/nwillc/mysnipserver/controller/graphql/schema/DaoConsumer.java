@@ -18,11 +18,21 @@
 package com.github.nwillc.mysnipserver.controller.graphql.schema;
 
 import com.github.nwillc.mysnipserver.controller.DaoProvider;
+import com.github.nwillc.mysnipserver.dao.ProjectingDao;
+import com.github.nwillc.mysnipserver.dao.cache.QueryResultCache;
 import com.github.nwillc.mysnipserver.entity.Category;
 import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.github.nwillc.mysnipserver.util.events.ChangeFeed;
 import com.github.nwillc.opa.Dao;
+import graphql.language.Field;
+import graphql.language.Selection;
 import graphql.schema.DataFetchingEnvironment;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
 public class DaoConsumer {
     public static Dao<String, Category> getCategoryDao(DataFetchingEnvironment env) {
         return ((DaoProvider) env.getSource()).getCategoryDao();
@@ -31,4 +41,46 @@ public class DaoConsumer {
     public static Dao<String, Snippet> getSnippetDao(DataFetchingEnvironment env) {
         return ((DaoProvider) env.getSource()).getSnippetDao();
     }
+
+    public static Optional<QueryResultCache<String>> getSnippetQueryCache(DataFetchingEnvironment env) {
+        return ((DaoProvider) env.getSource()).getSnippetQueryCache();
+    }
+
+    public static Optional<ChangeFeed> getChangeFeed(DataFetchingEnvironment env) {
+        return ((DaoProvider) env.getSource()).getChangeFeed();
+    }
+
+    public static int getDefaultPageSize(DataFetchingEnvironment env) {
+        return ((DaoProvider) env.getSource()).getDefaultPageSize();
+    }
+
+    /**
+     * The snippet DAO, reading only the given fields when the store supports projection.
+     */
+    public static Dao<String, Snippet> getSnippetDao(DataFetchingEnvironment env, Optional<Set<String>> fields) {
+        return ProjectingDao.project(getSnippetDao(env), fields);
+    }
+
+    /**
+     * The names of the fields selected under the current field, plus any required ones. Empty if the
+     * selection uses fragments, in which case every field should be read.
+     */
+    public static Optional<Set<String>> selection(DataFetchingEnvironment env, String... required) {
+        final Set<String> names = new HashSet<>(Arrays.asList(required));
+        if (env.getFields() == null || env.getFields().isEmpty()) {
+            return Optional.empty();
+        }
+        for (Field field : env.getFields()) {
+            if (field.getSelectionSet() == null) {
+                return Optional.empty();
+            }
+            for (Selection selection : field.getSelectionSet().getSelections()) {
+                if (!(selection instanceof Field)) {
+                    return Optional.empty();
+                }
+                names.add(((Field) selection).getName());
+            }
+        }
+        return Optional.of(names);
+    }
 }
@@ -17,18 +17,53 @@
 
 package com.github.nwillc.mysnipserver.controller.graphql.schema;
 
+import com.github.nwillc.mysnipserver.dao.BatchDao;
 import com.github.nwillc.mysnipserver.entity.Category;
+import com.github.nwillc.mysnipserver.entity.Entity;
 import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.github.nwillc.mysnipserver.util.events.Change;
 import graphql.annotations.GraphQLField;
 import graphql.annotations.GraphQLName;
 import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLArgument;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLInputObjectType;
+import graphql.schema.GraphQLInputType;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLNonNull;
+import graphql.schema.GraphQLTypeReference;
 
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.github.nwillc.mysnipserver.controller.graphql.schema.SnippetSchema.*;
+import static graphql.Scalars.GraphQLBoolean;
+import static graphql.Scalars.GraphQLString;
+import static graphql.schema.GraphQLInputObjectField.newInputObjectField;
 
 @GraphQLName(MUTATION)
 public final class MutationSchema extends DaoConsumer {
+    private static final GraphQLInputObjectType CATEGORY_INPUT = GraphQLInputObjectType.newInputObject()
+            .name("CategoryInput")
+            .field(newInputObjectField().name(KEY).type(GraphQLString))
+            .field(newInputObjectField().name(NAME).type(new GraphQLNonNull(GraphQLString)))
+            .build();
+    private static final GraphQLInputObjectType SNIPPET_INPUT = GraphQLInputObjectType.newInputObject()
+            .name("SnippetInput")
+            .field(newInputObjectField().name(KEY).type(GraphQLString))
+            .field(newInputObjectField().name(CATEGORY).type(new GraphQLNonNull(GraphQLString)))
+            .field(newInputObjectField().name(TITLE).type(new GraphQLNonNull(GraphQLString)))
+            .field(newInputObjectField().name(BODY).type(new GraphQLNonNull(GraphQLString)))
+            .build();
 
     @GraphQLField
     public static Category category(final DataFetchingEnvironment env,
@@ -39,6 +74,7 @@ public final class MutationSchema extends DaoConsumer {
             category.setKey(key);
         }
         getCategoryDao(env).save(category);
+        publish(env, saved(category));
         return category;
     }
 
@@ -52,7 +88,11 @@ public final class MutationSchema extends DaoConsumer {
         if (key != null) {
             snippet.setKey(key);
         }
+        final Set<String> categories = storedCategories(env, Collections.singletonList(snippet.getKey()));
         getSnippetDao(env).save(snippet);
+        categories.add(category);
+        invalidate(env, categories);
+        publish(env, saved(snippet));
         return snippet;
     }
 
@@ -60,13 +100,137 @@ public final class MutationSchema extends DaoConsumer {
     public static boolean deleteCategory(final DataFetchingEnvironment env,
                                          @NotNull @GraphQLName(KEY) final String key) {
         getCategoryDao(env).delete(key);
+        publish(env, Change.deleted(CATEGORY, key));
         return true;
     }
 
     @GraphQLField
     public static boolean deleteSnippet(final DataFetchingEnvironment env,
                                         @NotNull @GraphQLName(KEY) final String key) {
+        final Set<String> categories = storedCategories(env, Collections.singletonList(key));
         getSnippetDao(env).delete(key);
+        invalidate(env, categories);
+        publish(env, Change.deleted(SNIPPET, key));
         return true;
     }
+
+    /**
+     * Mutations writing many entities in one DAO batch. These take lists of input objects, which the
+     * annotations can not describe, so they are built by hand.
+     */
+    public static List<GraphQLFieldDefinition> batchFields() {
+        return Arrays.asList(
+                GraphQLFieldDefinition.newFieldDefinition()
+                        .name("categories")
+                        .argument(listArgument(INPUT, CATEGORY_INPUT))
+                        .type(new GraphQLList(new GraphQLTypeReference(CATEGORY)))
+                        .dataFetcher(env -> {
+                            final List<Category> categories = inputs(env, input ->
+                                    key(new Category((String) input.get(NAME)), input));
+                            BatchDao.saveAll(getCategoryDao(env), categories);
+                            categories.forEach(category -> publish(env, saved(category)));
+                            return categories;
+                        })
+                        .build(),
+                GraphQLFieldDefinition.newFieldDefinition()
+                        .name("snippets")
+                        .argument(listArgument(INPUT, SNIPPET_INPUT))
+                        .type(new GraphQLList(new GraphQLTypeReference(SNIPPET)))
+                        .dataFetcher(env -> {
+                            final List<Snippet> snippets = inputs(env, input -> key(new Snippet(
+                                    (String) input.get(CATEGORY), (String) input.get(TITLE), (String) input.get(BODY)), input));
+                            final Set<String> categories = storedCategories(env,
+                                    snippets.stream().map(Snippet::getKey).collect(Collectors.toList()));
+                            BatchDao.saveAll(getSnippetDao(env), snippets);
+                            snippets.forEach(snippet -> categories.add(snippet.getCategory()));
+                            invalidate(env, categories);
+                            snippets.forEach(snippet -> publish(env, saved(snippet)));
+                            return snippets;
+                        })
+                        .build(),
+                GraphQLFieldDefinition.newFieldDefinition()
+                        .name("deleteCategories")
+                        .argument(listArgument(KEYS, GraphQLString))
+                        .type(GraphQLBoolean)
+                        .dataFetcher(env -> {
+                            final List<String> keys = env.getArgument(KEYS);
+                            BatchDao.deleteAll(getCategoryDao(env), keys);
+                            keys.forEach(key -> publish(env, Change.deleted(CATEGORY, key)));
+                            return true;
+                        })
+                        .build(),
+                GraphQLFieldDefinition.newFieldDefinition()
+                        .name("deleteSnippets")
+                        .argument(listArgument(KEYS, GraphQLString))
+                        .type(GraphQLBoolean)
+                        .dataFetcher(env -> {
+                            final List<String> keys = env.getArgument(KEYS);
+                            final Set<String> categories = storedCategories(env, keys);
+                            BatchDao.deleteAll(getSnippetDao(env), keys);
+                            invalidate(env, categories);
+                            keys.forEach(key -> publish(env, Change.deleted(SNIPPET, key)));
+                            return true;
+                        })
+                        .build());
+    }
+
+    private static GraphQLArgument listArgument(String name, GraphQLInputType type) {
+        return GraphQLArgument.newArgument()
+                .name(name)
+                .type(new GraphQLNonNull(new GraphQLList(new GraphQLNonNull(type))))
+                .build();
+    }
+
+    private static <T> List<T> inputs(DataFetchingEnvironment env, Function<Map<String, Object>, T> factory) {
+        final List<Map<String, Object>> inputs = env.getArgument(INPUT);
+        final List<T> entities = new ArrayList<>(inputs.size());
+        for (Map<String, Object> input : inputs) {
+            entities.add(factory.apply(input));
+        }
+        return entities;
+    }
+
+    /**
+     * The categories of the stored snippets with these keys, if there are query results to invalidate.
+     */
+    private static Set<String> storedCategories(DataFetchingEnvironment env, List<String> keys) {
+        final Set<String> categories = new HashSet<>();
+        if (getSnippetQueryCache(env).isPresent()) {
+            BatchDao.findAll(getSnippetDao(env), keys).forEach(snippet -> categories.add(snippet.getCategory()));
+        }
+        return categories;
+    }
+
+    private static void invalidate(DataFetchingEnvironment env, Set<String> categories) {
+        getSnippetQueryCache(env).ifPresent(cache -> categories.forEach(cache::invalidate));
+    }
+
+    private static void publish(DataFetchingEnvironment env, Change change) {
+        getChangeFeed(env).ifPresent(feed -> feed.publish(change));
+    }
+
+    /**
+     * A category's change carries its name.
+     */
+    private static Change saved(Category category) {
+        return new Change(Change.Operation.SAVE, CATEGORY, category.getKey(),
+                Collections.singletonMap(NAME, category.getName()));
+    }
+
+    /**
+     * A snippet's change carries its category and title but not its body, which clients load on demand.
+     */
+    private static Change saved(Snippet snippet) {
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put(CATEGORY, snippet.getCategory());
+        fields.put(TITLE, snippet.getTitle());
+        return new Change(Change.Operation.SAVE, SNIPPET, snippet.getKey(), fields);
+    }
+
+    private static <T extends Entity> T key(T entity, Map<String, Object> input) {
+        if (input.get(KEY) != null) {
+            entity.setKey((String) input.get(KEY));
+        }
+        return entity;
+    }
 }
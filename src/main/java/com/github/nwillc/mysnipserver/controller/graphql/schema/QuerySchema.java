@@ -17,30 +17,51 @@
 
 package com.github.nwillc.mysnipserver.controller.graphql.schema;
 
+import com.github.nwillc.mysnipserver.dao.BatchDao;
+import com.github.nwillc.mysnipserver.dao.PagingDao;
+import com.github.nwillc.mysnipserver.dao.PlanningDao;
+import com.github.nwillc.mysnipserver.dao.QueryPlan;
+import com.github.nwillc.mysnipserver.dao.cache.QueryResultCache;
 import com.github.nwillc.mysnipserver.entity.Category;
 import com.github.nwillc.mysnipserver.entity.DataStore;
 import com.github.nwillc.mysnipserver.entity.Field;
 import com.github.nwillc.mysnipserver.entity.Snippet;
-import com.github.nwillc.opa.query.Query;
-import com.github.nwillc.opa.query.QueryGenerator;
+import com.github.nwillc.mysnipserver.util.search.Bm25;
+import com.github.nwillc.mysnipserver.util.search.TopK;
+import com.github.nwillc.opa.Dao;
 import graphql.annotations.GraphQLField;
 import graphql.annotations.GraphQLName;
 import graphql.schema.DataFetchingEnvironment;
 import org.pmw.tinylog.Logger;
 
 import javax.validation.constraints.NotNull;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static com.github.nwillc.mysnipserver.controller.graphql.schema.SnippetSchema.*;
 
 @GraphQLName(QUERY)
 public final class QuerySchema extends DaoConsumer {
+    private static final Map<String, QueryPlan<Snippet>> SNIPPETS_PLANS = new ConcurrentHashMap<>();
+    private static final int SEARCH_FIRST = 10;
+    private static final int SEARCH_MAX = 100;
+    private static final Bm25<Snippet> RELEVANCE = new Bm25<Snippet>()
+            .field(Snippet::getTitle, 3.0, 3.0)
+            .field(Snippet::getBody, 1.0, 30.0);
 
     @GraphQLField
-    public static List<Category> categories(final DataFetchingEnvironment env) {
-        return getCategoryDao(env).findAll().collect(Collectors.toList());
+    public static List<Category> categories(final DataFetchingEnvironment env,
+                                            @GraphQLName(FIRST) final Integer first,
+                                            @GraphQLName(AFTER) final String after) {
+        if (first == null && after == null) {
+            return getCategoryDao(env).findAll().collect(Collectors.toList());
+        }
+        return PagingDao.findAll(getCategoryDao(env), after, pageSize(env, first)).collect(Collectors.toList());
     }
 
     @GraphQLField
@@ -52,36 +73,90 @@ public final class QuerySchema extends DaoConsumer {
     @GraphQLField
     public static List<Snippet> snippets(final DataFetchingEnvironment env,
                                          @GraphQLName(CATEGORY) final String category,
-                                         @GraphQLName(MATCH) final String match) {
-        QueryGenerator<Snippet> queryGenerator = new QueryGenerator<>(Snippet.class);
+                                         @GraphQLName(MATCH) final String match,
+                                         @GraphQLName(FIRST) final Integer first,
+                                         @GraphQLName(AFTER) final String after) {
+        final Dao<String, Snippet> dao = getSnippetDao(env, selection(env));
+        final boolean paged = first != null || after != null;
+        if (paged) {
+            return (category == null && match == null ? PagingDao.findAll(dao, after, pageSize(env, first)) :
+                    PagingDao.find(dao, snippetsPlan(category != null, match != null), parameters(category, match),
+                            after, pageSize(env, first)))
+                    .collect(Collectors.toList());
+        }
 
-        if (match != null) {
-            try {
-                queryGenerator.contains(Field.title.name(), match)
-                        .contains(Field.body.name(), match)
-                        .or();
-            } catch (NoSuchFieldException e) {
-                e.printStackTrace();
-            }
+        final Optional<QueryResultCache<String>> cache = getSnippetQueryCache(env);
+        final Optional<List<String>> cached = cache.flatMap(c -> c.get(category, match));
+        if (cached.isPresent()) {
+            return BatchDao.findAll(dao, cached.get()).collect(Collectors.toList());
+        }
+        final long stamp = cache.map(QueryResultCache::stamp).orElse(0L);
+        final List<Snippet> snippets;
+        if (category == null && match == null) {
+            snippets = dao.findAll().collect(Collectors.toList());
+        } else {
+            final QueryPlan<Snippet> plan = snippetsPlan(category != null, match != null);
+            final Map<String, String> parameters = parameters(category, match);
+            Logger.info("Query: " + plan + ' ' + parameters);
+            snippets = PlanningDao.find(dao, plan, parameters).collect(Collectors.toList());
         }
+        cache.ifPresent(c -> c.put(category, match,
+                snippets.stream().map(Snippet::getKey).collect(Collectors.toList()), stamp));
+        return snippets;
+    }
+
+    @GraphQLField
+    public static List<Snippet> search(final DataFetchingEnvironment env,
+                                       @NotNull @GraphQLName(MATCH) final String match,
+                                       @GraphQLName(CATEGORY) final String category,
+                                       @GraphQLName(FIRST) final Integer first) {
+        final TopK<Snippet> topK = new TopK<>(first == null ? SEARCH_FIRST : Math.max(1, Math.min(first, SEARCH_MAX)));
+        final QueryPlan<Snippet> plan = snippetsPlan(category != null, true);
+        final Map<String, String> parameters = parameters(category, match);
+        Logger.info("Search: " + plan + ' ' + parameters);
+        final Optional<Set<String>> fields = selection(env, Field.title.name(), Field.body.name());
+        PlanningDao.find(getSnippetDao(env, fields), plan, parameters)
+                .forEach(snippet -> topK.offer(snippet, RELEVANCE.score(snippet, match)));
+        return topK.toList();
+    }
+
+    /**
+     * The page asked for, or when only after is given the default page size query costs were estimated with.
+     */
+    private static int pageSize(final DataFetchingEnvironment env, final Integer first) {
+        return first == null ? getDefaultPageSize(env) : Math.max(first, 0);
+    }
 
-        if (category != null) {
+    /**
+     * Query parameters, with the match trimmed as the snippet query cache keys it.
+     */
+    private static Map<String, String> parameters(final String category, final String match) {
+        final Map<String, String> parameters = new HashMap<>();
+        parameters.put(CATEGORY, category);
+        parameters.put(MATCH, match == null ? null : match.trim());
+        return parameters;
+    }
+
+    private static QueryPlan<Snippet> snippetsPlan(final boolean byCategory, final boolean byMatch) {
+        return SNIPPETS_PLANS.computeIfAbsent((byCategory ? CATEGORY : "") + ':' + (byMatch ? MATCH : ""), key -> {
             try {
-                queryGenerator.eq(Field.category.name(), category);
-                if (match != null) {
-                    queryGenerator.and();
-                }
+                return new QueryPlan<>(Snippet.class, (generator, parameters) -> {
+                    if (byMatch) {
+                        generator.contains(Field.title.name(), parameters.apply(MATCH))
+                                .contains(Field.body.name(), parameters.apply(MATCH))
+                                .or();
+                    }
+                    if (byCategory) {
+                        generator.eq(Field.category.name(), parameters.apply(CATEGORY));
+                        if (byMatch) {
+                            generator.and();
+                        }
+                    }
+                });
             } catch (NoSuchFieldException e) {
-                e.printStackTrace();
+                throw new IllegalStateException("Failed planning snippets query", e);
             }
-        }
-        Logger.info("Query: " + queryGenerator);
-        Query<Snippet> query = queryGenerator.getQuery();
-
-        Stream<Snippet> snippetStream = query != null ?
-                getSnippetDao(env).find(query) :
-                getSnippetDao(env).findAll();
-        return snippetStream.collect(Collectors.toList());
+        });
     }
 
     @GraphQLField
@@ -89,12 +164,12 @@ public final class QuerySchema extends DaoConsumer {
         return new DataStore() {
             @Override
             public List<Category> getCategories() {
-                return categories(env);
+                return categories(env, null, null);
             }
 
             @Override
             public List<Snippet> getSnippets() {
-                return snippets(env, null, null);
+                return getSnippetDao(env).findAll().collect(Collectors.toList());
             }
         };
     }
@@ -102,6 +177,6 @@ public final class QuerySchema extends DaoConsumer {
     @GraphQLField
     public static Snippet snippet(final DataFetchingEnvironment env,
                                   @NotNull @GraphQLName(KEY) final String key) {
-        return getSnippetDao(env).findOne(key).orElse(null);
+        return getSnippetDao(env, selection(env)).findOne(key).orElse(null);
     }
 }
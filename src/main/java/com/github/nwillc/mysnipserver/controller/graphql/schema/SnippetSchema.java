@@ -31,6 +31,11 @@ public class SnippetSchema {
     public static final String TITLE = "title";
     public static final String BODY = "body";
     public static final String MATCH = "match";
+    public static final String SEARCH = "search";
+    public static final String FIRST = "first";
+    public static final String AFTER = "after";
+    public static final String INPUT = "input";
+    public static final String KEYS = "keys";
     public static final String QUERY = "query";
     public static final String MUTATION = "mutation";
     private final GraphQLSchema schema;
@@ -39,7 +44,9 @@ public class SnippetSchema {
     public SnippetSchema() throws IllegalAccessException, NoSuchMethodException, InstantiationException {
         schema = newSchema()
                 .query(GraphQLAnnotations.object(QuerySchema.class))
-                .mutation(GraphQLAnnotations.object(MutationSchema.class))
+                .mutation(GraphQLAnnotations.objectBuilder(MutationSchema.class)
+                        .fields(MutationSchema.batchFields())
+                        .build())
                 .build();
     }
 
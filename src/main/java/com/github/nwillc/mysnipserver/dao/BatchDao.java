@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao;
+
+import com.github.nwillc.opa.Dao;
+import com.github.nwillc.opa.HasKey;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A DAO able to apply many reads or writes as a single batch.
+ */
+public interface BatchDao<K, T extends HasKey<K>> extends Dao<K, T> {
+    /**
+     * The entities with the given keys, in the order given, skipping keys that are not found. Implementations
+     * fetch them in a single round trip to their store, a key $in query for Mongo.
+     */
+    Stream<T> findAll(Collection<K> keys);
+
+    void saveAll(Collection<T> entities);
+
+    void deleteAll(Collection<K> keys);
+
+    /**
+     * Find entities by key with any DAO, one at a time for those that can not batch.
+     */
+    static <K, T extends HasKey<K>> Stream<T> findAll(Dao<K, T> dao, Collection<K> keys) {
+        if (dao instanceof BatchDao) {
+            return ((BatchDao<K, T>) dao).findAll(keys);
+        }
+        return keys.stream()
+                .map(dao::findOne)
+                .filter(Optional::isPresent)
+                .map(Optional::get);
+    }
+
+    /**
+     * Save entities with any DAO, one at a time for those that can not batch.
+     */
+    static <K, T extends HasKey<K>> void saveAll(Dao<K, T> dao, Collection<T> entities) {
+        if (dao instanceof BatchDao) {
+            ((BatchDao<K, T>) dao).saveAll(entities);
+        } else {
+            entities.forEach(dao::save);
+        }
+    }
+
+    /**
+     * Delete keys with any DAO, one at a time for those that can not batch.
+     */
+    static <K, T extends HasKey<K>> void deleteAll(Dao<K, T> dao, Collection<K> keys) {
+        if (dao instanceof BatchDao) {
+            ((BatchDao<K, T>) dao).deleteAll(keys);
+        } else {
+            keys.forEach(dao::delete);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao;
+
+import com.github.nwillc.opa.Dao;
+import com.github.nwillc.opa.HasKey;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A DAO able to return pages of entities in key order, starting after a cursor key, with the cost of a
+ * page proportional to its size.
+ */
+public interface PagingDao<K, T extends HasKey<K>> extends PlanningDao<K, T> {
+    Stream<T> findAll(K after, int first);
+
+    Stream<T> find(QueryPlan<T> plan, Map<String, String> parameters, K after, int first);
+
+    /**
+     * Page through all entities of any DAO, sorting and skipping in memory for those that can not page.
+     */
+    static <K extends Comparable<K>, T extends HasKey<K>> Stream<T> findAll(Dao<K, T> dao, K after, int first) {
+        if (dao instanceof PagingDao) {
+            return ((PagingDao<K, T>) dao).findAll(after, first);
+        }
+        return page(dao.findAll(), after, first);
+    }
+
+    /**
+     * Page through the results of a plan on any DAO, sorting and skipping in memory for those that can not page.
+     */
+    static <K extends Comparable<K>, T extends HasKey<K>> Stream<T> find(Dao<K, T> dao, QueryPlan<T> plan,
+                                                                        Map<String, String> parameters,
+                                                                        K after, int first) {
+        if (dao instanceof PagingDao) {
+            return ((PagingDao<K, T>) dao).find(plan, parameters, after, first);
+        }
+        return page(PlanningDao.find(dao, plan, parameters), after, first);
+    }
+
+    static <K extends Comparable<K>, T extends HasKey<K>> Stream<T> page(Stream<T> stream, K after, int first) {
+        return stream
+                .filter(t -> after == null || t.getKey().compareTo(after) > 0)
+                .sorted(Comparator.comparing(HasKey::getKey))
+                .limit(first);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao;
+
+import com.github.nwillc.opa.Dao;
+import com.github.nwillc.opa.HasKey;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A DAO able to execute a {@link QueryPlan} directly, compiling each shape once.
+ */
+public interface PlanningDao<K, T extends HasKey<K>> extends Dao<K, T> {
+    Stream<T> find(QueryPlan<T> plan, Map<String, String> parameters);
+
+    /**
+     * Execute a plan against any DAO, binding it into a query for those that can not execute plans.
+     */
+    static <K, T extends HasKey<K>> Stream<T> find(Dao<K, T> dao, QueryPlan<T> plan, Map<String, String> parameters) {
+        if (dao instanceof PlanningDao) {
+            return ((PlanningDao<K, T>) dao).find(plan, parameters);
+        }
+        return dao.find(plan.bind(parameters));
+    }
+}
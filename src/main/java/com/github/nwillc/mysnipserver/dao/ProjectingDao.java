@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao;
+
+import com.github.nwillc.opa.Dao;
+import com.github.nwillc.opa.HasKey;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A DAO able to read only some fields of its entities, leaving the others unset.
+ */
+public interface ProjectingDao<K, T extends HasKey<K>> extends Dao<K, T> {
+    /**
+     * A view of this DAO whose reads only populate the given fields, and always the key.
+     */
+    Dao<K, T> project(Set<String> fields);
+
+    /**
+     * Project any DAO, returning it unchanged if it can not project or no projection is given.
+     */
+    static <K, T extends HasKey<K>> Dao<K, T> project(Dao<K, T> dao, Optional<Set<String>> fields) {
+        if (fields.isPresent() && dao instanceof ProjectingDao) {
+            return ((ProjectingDao<K, T>) dao).project(fields.get());
+        }
+        return dao;
+    }
+}
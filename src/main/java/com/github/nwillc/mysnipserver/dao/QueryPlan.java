@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao;
+
+import com.github.nwillc.mysnipserver.util.cache.BoundedCache;
+import com.github.nwillc.mysnipserver.util.cache.CacheStats;
+import com.github.nwillc.mysnipserver.util.cache.Eviction;
+import com.github.nwillc.opa.query.Comparison;
+import com.github.nwillc.opa.query.Query;
+import com.github.nwillc.opa.query.QueryGenerator;
+import com.github.nwillc.opa.query.QueryMapper;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A query shape compiled once and executed many times with different parameter values. The template is
+ * generated with each parameter's name standing in for its value, so DAOs can compile the template query
+ * into their own form once, cache it by shape, and bind the values on each execution.
+ */
+public class QueryPlan<T> {
+    private static final long MAXIMUM_BOUND = 1024;
+    private static final BoundedCache<Bound, Query<?>> BOUND =
+            new BoundedCache<>(MAXIMUM_BOUND, 0, Eviction.LRU, CacheStats.named("query.plans.bound"));
+    private final Class<T> tClass;
+    private final Template<T> template;
+    private final Query<T> query;
+    private final String shape;
+
+    public QueryPlan(Class<T> tClass, Template<T> template) throws NoSuchFieldException {
+        this.tClass = tClass;
+        this.template = template;
+        query = generate(Function.identity());
+        final ShapeMapper<T> shapeMapper = new ShapeMapper<>();
+        query.accept(shapeMapper);
+        shape = shapeMapper.toShape();
+    }
+
+    /**
+     * The template query, with parameter names in place of values.
+     */
+    public Query<T> getQuery() {
+        return query;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    /**
+     * A query with the given values bound, for DAOs that can not execute plans. Bound queries are cached by
+     * plan and values in one cache shared by all plans, so only the first execution with each set of values
+     * pays for generating the query.
+     */
+    @SuppressWarnings("unchecked")
+    public Query<T> bind(Map<String, String> parameters) {
+        final Map<String, String> values = new HashMap<>(parameters);
+        final Bound key = new Bound(this, values);
+        Query<T> query = (Query<T>) BOUND.getIfPresent(key);
+        if (query == null) {
+            try {
+                query = generate(values::get);
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException("Plan fields changed: " + shape, e);
+            }
+            BOUND.put(key, query);
+        }
+        return query;
+    }
+
+    private Query<T> generate(Function<String, String> parameters) throws NoSuchFieldException {
+        final QueryGenerator<T> generator = new QueryGenerator<>(tClass);
+        template.generate(generator, parameters);
+        return generator.getQuery();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryPlan{" + shape + '}';
+    }
+
+    @FunctionalInterface
+    public interface Template<T> {
+        void generate(QueryGenerator<T> generator, Function<String, String> parameters) throws NoSuchFieldException;
+    }
+
+    /**
+     * A plan, by identity, with the values bound to it.
+     */
+    private static final class Bound {
+        private final QueryPlan<?> plan;
+        private final Map<String, String> values;
+
+        Bound(QueryPlan<?> plan, Map<String, String> values) {
+            this.plan = plan;
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Bound bound = (Bound) o;
+            return plan == bound.plan && values.equals(bound.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(plan) + values.hashCode();
+        }
+    }
+
+    private static class ShapeMapper<T> implements QueryMapper<T> {
+        private Deque<String> shapes = new ArrayDeque<>();
+
+        @Override
+        public void accept(Query<T> tQuery) {
+            String shape;
+
+            switch (tQuery.getOperator()) {
+                case EQ:
+                case CONTAINS:
+                    shapes.addLast(((Comparison<T>) tQuery).getFieldName() + ' ' + tQuery.getOperator() + " :" +
+                            ((Comparison<T>) tQuery).getValue());
+                    break;
+                case NOT:
+                    shape = shapes.removeLast();
+                    shapes.addLast("NOT (" + shape + ')');
+                    break;
+                case AND:
+                case OR:
+                    shape = shapes.stream().collect(Collectors.joining(" " + tQuery.getOperator() + " ", "(", ")"));
+                    shapes = new ArrayDeque<>();
+                    shapes.addLast(shape);
+                    break;
+            }
+        }
+
+        String toShape() {
+            return shapes.getFirst();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.cache;
+
+import com.github.nwillc.mysnipserver.dao.BatchDao;
+import com.github.nwillc.mysnipserver.dao.PagingDao;
+import com.github.nwillc.mysnipserver.dao.PlanningDao;
+import com.github.nwillc.mysnipserver.dao.ProjectingDao;
+import com.github.nwillc.mysnipserver.dao.QueryPlan;
+import com.github.nwillc.mysnipserver.util.cache.BoundedCache;
+import com.github.nwillc.opa.Dao;
+import com.github.nwillc.opa.HasKey;
+import com.github.nwillc.opa.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Caches the entities another DAO finds by key, in a {@link BoundedCache}, and optionally the keys it
+ * did not find in a second cache. Writes go straight through and invalidate the key in both. Queries and
+ * projected reads go to the other DAO, keeping whatever planning, paging and projection it supports.
+ */
+public class CachedDao<K extends Comparable<K>, T extends HasKey<K>>
+        implements PagingDao<K, T>, BatchDao<K, T>, ProjectingDao<K, T> {
+    private final Dao<K, T> dao;
+    private final BoundedCache<K, T> cache;
+    private final BoundedCache<K, Boolean> misses;
+
+    public CachedDao(Dao<K, T> dao, BoundedCache<K, T> cache) {
+        this(dao, cache, null);
+    }
+
+    /**
+     * @param misses where keys not found are remembered, or null to always ask the other DAO
+     */
+    public CachedDao(Dao<K, T> dao, BoundedCache<K, T> cache, BoundedCache<K, Boolean> misses) {
+        this.dao = dao;
+        this.cache = cache;
+        this.misses = misses;
+    }
+
+    public BoundedCache<K, T> getCache() {
+        return cache;
+    }
+
+    @Override
+    public Optional<T> findOne(K key) {
+        final T cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (misses != null && misses.getIfPresent(key) != null) {
+            return Optional.empty();
+        }
+        final long stamp = cache.stamp();
+        final long missStamp = misses == null ? 0 : misses.stamp();
+        final Optional<T> found = dao.findOne(key);
+        if (found.isPresent()) {
+            cache.put(key, found.get(), stamp);
+        } else if (misses != null) {
+            misses.put(key, Boolean.TRUE, missStamp);
+        }
+        return found;
+    }
+
+    @Override
+    public Stream<T> findAll(Collection<K> keys) {
+        final Map<K, T> found = new HashMap<>();
+        final List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            final T cached = cache.getIfPresent(key);
+            if (cached == null) {
+                missing.add(key);
+            } else {
+                found.put(key, cached);
+            }
+        }
+        if (!missing.isEmpty()) {
+            final long stamp = cache.stamp();
+            BatchDao.findAll(dao, missing).forEach(entity -> {
+                found.put(entity.getKey(), entity);
+                cache.put(entity.getKey(), entity, stamp);
+            });
+        }
+        return keys.stream().map(found::get).filter(Objects::nonNull);
+    }
+
+    @Override
+    public Stream<T> findAll() {
+        return dao.findAll();
+    }
+
+    @Override
+    public Stream<T> find(Query<T> query) {
+        return dao.find(query);
+    }
+
+    @Override
+    public Stream<T> find(QueryPlan<T> plan, Map<String, String> parameters) {
+        return PlanningDao.find(dao, plan, parameters);
+    }
+
+    @Override
+    public Stream<T> findAll(K after, int first) {
+        return PagingDao.findAll(dao, after, first);
+    }
+
+    @Override
+    public Stream<T> find(QueryPlan<T> plan, Map<String, String> parameters, K after, int first) {
+        return PagingDao.find(dao, plan, parameters, after, first);
+    }
+
+    @Override
+    public Dao<K, T> project(Set<String> fields) {
+        return ProjectingDao.project(dao, Optional.of(fields));
+    }
+
+    @Override
+    public void save(T entity) {
+        invalidate(entity.getKey());
+        dao.save(entity);
+        invalidate(entity.getKey());
+    }
+
+    @Override
+    public void delete(K key) {
+        invalidate(key);
+        dao.delete(key);
+        invalidate(key);
+    }
+
+    @Override
+    public void saveAll(Collection<T> entities) {
+        entities.forEach(entity -> invalidate(entity.getKey()));
+        BatchDao.saveAll(dao, entities);
+        entities.forEach(entity -> invalidate(entity.getKey()));
+    }
+
+    @Override
+    public void deleteAll(Collection<K> keys) {
+        keys.forEach(this::invalidate);
+        BatchDao.deleteAll(dao, keys);
+        keys.forEach(this::invalidate);
+    }
+
+    private void invalidate(K key) {
+        cache.invalidate(key);
+        if (misses != null) {
+            misses.invalidate(key);
+        }
+    }
+}
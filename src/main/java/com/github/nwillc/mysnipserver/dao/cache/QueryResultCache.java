@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.cache;
+
+import com.github.nwillc.mysnipserver.util.cache.BoundedCache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Caches the keys of the entities a query by category and match found, so a repeated query only has to
+ * fetch entities by key. An entry is invalidated when an entity in its category changes, and entries
+ * for all categories when any entity changes.
+ */
+public class QueryResultCache<K> {
+    private final BoundedCache<Arguments, List<K>> results;
+
+    /**
+     * @param results the cache to hold results in, a result weighing one plus its number of keys
+     */
+    public QueryResultCache(BoundedCache<Arguments, List<K>> results) {
+        this.results = results;
+    }
+
+    public Optional<List<K>> get(String category, String match) {
+        return Optional.ofNullable(results.getIfPresent(new Arguments(category, match)));
+    }
+
+    /**
+     * A stamp to take before running a query whose result will be cached.
+     */
+    public long stamp() {
+        return results.stamp();
+    }
+
+    public void put(String category, String match, List<K> keys, long stamp) {
+        results.put(new Arguments(category, match), Collections.unmodifiableList(keys), stamp);
+    }
+
+    /**
+     * Invalidate the results that an entity in this category could appear in.
+     */
+    public void invalidate(String category) {
+        results.invalidateIf(arguments -> arguments.category == null || arguments.category.equals(category));
+    }
+
+    public BoundedCache<Arguments, List<K>> getResults() {
+        return results;
+    }
+
+    /**
+     * The arguments of a query, where an absent argument is distinct from an empty one. Matches ignore case
+     * and surrounding whitespace, so spellings of one match share an entry.
+     */
+    public static final class Arguments {
+        private final String category;
+        private final String match;
+
+        Arguments(String category, String match) {
+            this.category = category;
+            this.match = match == null ? null : match.trim().toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Arguments arguments = (Arguments) o;
+            return Objects.equals(category, arguments.category) && Objects.equals(match, arguments.match);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(category, match);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + category + ", " + match + ')';
+        }
+    }
+}
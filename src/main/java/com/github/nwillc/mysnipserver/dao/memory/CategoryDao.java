@@ -18,11 +18,11 @@
 package com.github.nwillc.mysnipserver.dao.memory;
 
 import com.github.nwillc.mysnipserver.entity.Category;
-import com.github.nwillc.opa.memory.MemoryBackedDao;
 
-public class CategoryDao extends MemoryBackedDao<String,Category> {
+public class CategoryDao extends IndexedMemoryBackedDao<String, Category> {
 
     public CategoryDao() {
+        super(Category.class);
         save(new Category("Java"));
         save(new Category("Shell Script"));
     }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.memory;
+
+import com.github.nwillc.opa.HasKey;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A hash index from the value of a field to the keys of the entities holding that value.
+ */
+public class HashIndex<K, T extends HasKey<K>> implements Index<K, T> {
+    private final Map<String, Set<K>> postings = new ConcurrentHashMap<>();
+    private final Function<T, Object> field;
+
+    public HashIndex(Function<T, Object> field) {
+        this.field = field;
+    }
+
+    @Override
+    public void add(T entity) {
+        final Object value = field.apply(entity);
+        if (value != null) {
+            postings.computeIfAbsent(value.toString(), v -> ConcurrentHashMap.newKeySet()).add(entity.getKey());
+        }
+    }
+
+    @Override
+    public void remove(T entity) {
+        final Object value = field.apply(entity);
+        if (value != null) {
+            postings.computeIfPresent(value.toString(), (v, keys) -> {
+                keys.remove(entity.getKey());
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    @Override
+    public Optional<Set<K>> eq(String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        return Optional.of(Collections.unmodifiableSet(postings.getOrDefault(value, Collections.emptySet())));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.memory;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A secondary index over entities held in memory. Lookups return the keys of candidate entities, or empty
+ * if the index can not answer the comparison, in which case the caller should fall back to a scan. Contains
+ * comparisons ignore case, as they do in the Mongo store and in relevance scoring.
+ */
+public interface Index<K, T> {
+    void add(T entity);
+
+    void remove(T entity);
+
+    default Optional<Set<K>> eq(String value) {
+        return Optional.empty();
+    }
+
+    default Optional<Set<K>> contains(String value) {
+        return Optional.empty();
+    }
+
+    /**
+     * The case folded form texts and values are compared in by contains.
+     */
+    static String fold(String text) {
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+}
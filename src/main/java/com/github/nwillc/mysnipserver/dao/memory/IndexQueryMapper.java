@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.memory;
+
+import com.github.nwillc.opa.query.Comparison;
+import com.github.nwillc.opa.query.Query;
+import com.github.nwillc.opa.query.QueryMapper;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Maps a query onto a set of indexes, producing the keys of the candidate entities that could satisfy
+ * it. Where a field has several indexes the first able to answer a comparison is used. Any part of the
+ * query the indexes can not answer leaves the result empty, meaning every entity is a candidate.
+ */
+public class IndexQueryMapper<K, T> implements QueryMapper<T> {
+    private final Map<String, List<Index<K, T>>> indexes;
+    private final Function<String, String> parameters;
+    private Deque<Optional<Set<K>>> candidates = new ArrayDeque<>();
+
+    public IndexQueryMapper(Map<String, List<Index<K, T>>> indexes) {
+        this(indexes, Function.identity());
+    }
+
+    public IndexQueryMapper(Map<String, List<Index<K, T>>> indexes, Function<String, String> parameters) {
+        this.indexes = indexes;
+        this.parameters = parameters;
+    }
+
+    @Override
+    public void accept(Query<T> tQuery) {
+        Optional<Set<K>> keys;
+
+        switch (tQuery.getOperator()) {
+            case EQ:
+                candidates.addLast(lookup((Comparison<T>) tQuery, Index::eq));
+                break;
+            case CONTAINS:
+                candidates.addLast(lookup((Comparison<T>) tQuery, Index::contains));
+                break;
+            case NOT:
+                candidates.removeLast();
+                candidates.addLast(Optional.empty());
+                break;
+            case AND:
+                keys = Optional.empty();
+                for (Optional<Set<K>> operand : candidates) {
+                    if (operand.isPresent()) {
+                        keys = Optional.of(keys.isPresent() ? intersect(keys.get(), operand.get()) : operand.get());
+                    }
+                }
+                candidates = new ArrayDeque<>();
+                candidates.addLast(keys);
+                break;
+            case OR:
+                keys = Optional.of(new HashSet<>());
+                for (Optional<Set<K>> operand : candidates) {
+                    if (!operand.isPresent()) {
+                        keys = Optional.empty();
+                        break;
+                    }
+                    keys.get().addAll(operand.get());
+                }
+                candidates = new ArrayDeque<>();
+                candidates.addLast(keys);
+                break;
+        }
+    }
+
+    public Optional<Set<K>> toCandidates() {
+        return candidates.getFirst();
+    }
+
+    private Optional<Set<K>> lookup(Comparison<T> comparison,
+                                    BiFunction<Index<K, T>, String, Optional<Set<K>>> lookup) {
+        final String value = parameters.apply(comparison.getValue());
+        return indexes.getOrDefault(comparison.getFieldName(), Collections.emptyList()).stream()
+                .map(index -> lookup.apply(index, value))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .findFirst();
+    }
+
+    private static <K> Set<K> intersect(Set<K> a, Set<K> b) {
+        final Set<K> smaller = a.size() <= b.size() ? a : b;
+        final Set<K> larger = smaller == a ? b : a;
+        final Set<K> result = new HashSet<>();
+        for (K key : smaller) {
+            if (larger.contains(key)) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.memory;
+
+import com.github.nwillc.mysnipserver.dao.BatchDao;
+import com.github.nwillc.mysnipserver.dao.PagingDao;
+import com.github.nwillc.mysnipserver.dao.QueryPlan;
+import com.github.nwillc.mysnipserver.entity.Indexed;
+import com.github.nwillc.mysnipserver.entity.Searchable;
+import com.github.nwillc.opa.HasKey;
+import com.github.nwillc.opa.memory.MemoryBackedDao;
+import com.github.nwillc.opa.query.Query;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * A memory backed DAO that maintains secondary indexes on its entities' fields. Fields annotated
+ * {@link Indexed} get a hash index, fields annotated {@link Searchable} get trigram and term indexes, and
+ * others can be added with {@link #index(String, Index)}. Queries the
+ * indexes can answer are resolved to a candidate set and only those candidates are tested, anything else
+ * is a scan. Keys are also kept ordered so that pages can be read without visiting earlier entities.
+ * Batches are applied under a single acquisition of the DAO's lock.
+ */
+public class IndexedMemoryBackedDao<K, T extends HasKey<K>> extends MemoryBackedDao<K, T>
+        implements PagingDao<K, T>, BatchDao<K, T> {
+    private final Class<T> tClass;
+    private final Map<String, List<Index<K, T>>> indexes = new ConcurrentHashMap<>();
+    private final Map<String, PredicateQueryMapper<T>> plans = new ConcurrentHashMap<>();
+    private final NavigableSet<K> keys = new ConcurrentSkipListSet<>();
+
+    public IndexedMemoryBackedDao(Class<T> tClass) {
+        this.tClass = tClass;
+        for (Class<?> aClass = tClass; aClass != null; aClass = aClass.getSuperclass()) {
+            for (Field field : aClass.getDeclaredFields()) {
+                final Function<T, Object> getter = PredicateQueryMapper.getter(tClass, field.getName());
+                if (field.isAnnotationPresent(Indexed.class)) {
+                    index(field.getName(), new HashIndex<>(getter));
+                }
+                if (field.isAnnotationPresent(Searchable.class)) {
+                    final Function<T, String> text = t -> {
+                        final Object value = getter.apply(t);
+                        return value == null ? null : value.toString();
+                    };
+                    index(field.getName(), new TrigramIndex<>(text));
+                    index(field.getName(), new TermIndex<>(text));
+                }
+            }
+        }
+    }
+
+    public final synchronized void index(String fieldName, Index<K, T> index) {
+        findAll().forEach(index::add);
+        indexes.computeIfAbsent(fieldName, f -> new CopyOnWriteArrayList<>()).add(index);
+    }
+
+    @Override
+    public Stream<T> find(Query<T> query) {
+        final Optional<Set<K>> candidates = candidates(query, Function.identity());
+        // Scans too test with this mapper, so contains ignores case whether or not an index could narrow it
+        final PredicateQueryMapper<T> predicateMapper = new PredicateQueryMapper<>(tClass);
+        query.accept(predicateMapper);
+        final Predicate<T> predicate = predicateMapper.toPredicate();
+        return candidates.isPresent() ? find(candidates.get(), predicate) : findAll().filter(predicate);
+    }
+
+    @Override
+    public Stream<T> find(QueryPlan<T> plan, Map<String, String> parameters) {
+        final Predicate<T> predicate = predicate(plan, parameters);
+        final Optional<Set<K>> candidates = candidates(plan.getQuery(), parameters::get);
+        return candidates.isPresent() ? find(candidates.get(), predicate) : findAll().filter(predicate);
+    }
+
+    @Override
+    public Stream<T> findAll(K after, int first) {
+        return entities(tail(after).stream()).limit(first);
+    }
+
+    @Override
+    public Stream<T> find(QueryPlan<T> plan, Map<String, String> parameters, K after, int first) {
+        final Predicate<T> predicate = predicate(plan, parameters);
+        final Optional<Set<K>> candidates = candidates(plan.getQuery(), parameters::get);
+        final Stream<K> pageKeys = candidates.isPresent() ?
+                candidates.get().stream().filter(key -> after == null || compare(key, after) > 0).sorted(this::compare) :
+                tail(after).stream();
+        return entities(pageKeys).filter(predicate).limit(first);
+    }
+
+    @Override
+    public synchronized void save(T entity) {
+        store(entity);
+    }
+
+    @Override
+    public synchronized void delete(K key) {
+        remove(key);
+    }
+
+    @Override
+    public Stream<T> findAll(Collection<K> keys) {
+        return entities(keys.stream());
+    }
+
+    @Override
+    public synchronized void saveAll(Collection<T> entities) {
+        entities.forEach(this::store);
+    }
+
+    @Override
+    public synchronized void deleteAll(Collection<K> keys) {
+        keys.forEach(this::remove);
+    }
+
+    private void store(T entity) {
+        findOne(entity.getKey()).ifPresent(this::unindex);
+        super.save(entity);
+        keys.add(entity.getKey());
+        indexes.values().forEach(list -> list.forEach(index -> index.add(entity)));
+    }
+
+    private void remove(K key) {
+        findOne(key).ifPresent(this::unindex);
+        super.delete(key);
+        keys.remove(key);
+    }
+
+    private Optional<Set<K>> candidates(Query<T> query, Function<String, String> parameters) {
+        final IndexQueryMapper<K, T> indexMapper = new IndexQueryMapper<>(indexes, parameters);
+        query.accept(indexMapper);
+        return indexMapper.toCandidates();
+    }
+
+    private Predicate<T> predicate(QueryPlan<T> plan, Map<String, String> parameters) {
+        return plans.computeIfAbsent(plan.getShape(), shape -> {
+            final PredicateQueryMapper<T> mapper = new PredicateQueryMapper<>(tClass);
+            plan.getQuery().accept(mapper);
+            return mapper;
+        }).toPredicate(parameters::get);
+    }
+
+    private Stream<T> find(Set<K> candidates, Predicate<T> predicate) {
+        return entities(candidates.stream()).filter(predicate);
+    }
+
+    private Stream<T> entities(Stream<K> keyStream) {
+        return keyStream
+                .map(this::findOne)
+                .filter(Optional::isPresent)
+                .map(Optional::get);
+    }
+
+    private NavigableSet<K> tail(K after) {
+        return after == null ? keys : keys.tailSet(after, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(K a, K b) {
+        return ((Comparable<K>) a).compareTo(b);
+    }
+
+    private void unindex(T entity) {
+        indexes.values().forEach(list -> list.forEach(index -> index.remove(entity)));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.memory;
+
+import com.github.nwillc.opa.query.Comparison;
+import com.github.nwillc.opa.query.Query;
+import com.github.nwillc.opa.query.QueryMapper;
+
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Maps a query into a predicate that can be tested against individual entities. Field access is resolved
+ * once when mapping, and comparison values are looked up through a parameter function when testing, so a
+ * mapped {@link com.github.nwillc.mysnipserver.dao.QueryPlan} template can be reused with any values.
+ */
+public class PredicateQueryMapper<T> implements QueryMapper<T> {
+    private final Class<T> tClass;
+    private Deque<BiPredicate<T, Function<String, String>>> predicates = new ArrayDeque<>();
+
+    public PredicateQueryMapper(Class<T> tClass) {
+        this.tClass = tClass;
+    }
+
+    @Override
+    public void accept(Query<T> tQuery) {
+        Function<T, Object> getter;
+        String value;
+        BiPredicate<T, Function<String, String>> predicate;
+        List<BiPredicate<T, Function<String, String>>> operands;
+
+        switch (tQuery.getOperator()) {
+            case EQ:
+                getter = getter(tClass, ((Comparison<T>) tQuery).getFieldName());
+                value = ((Comparison<T>) tQuery).getValue();
+                predicates.addLast((t, parameters) -> {
+                    final Object fieldValue = getter.apply(t);
+                    return fieldValue != null && fieldValue.toString().equals(parameters.apply(value));
+                });
+                break;
+            case CONTAINS:
+                getter = getter(tClass, ((Comparison<T>) tQuery).getFieldName());
+                value = ((Comparison<T>) tQuery).getValue();
+                predicates.addLast((t, parameters) -> {
+                    final Object fieldValue = getter.apply(t);
+                    final String match = parameters.apply(value);
+                    return fieldValue != null && match != null &&
+                            Index.fold(fieldValue.toString()).contains(Index.fold(match));
+                });
+                break;
+            case NOT:
+                predicate = predicates.removeLast();
+                predicates.addLast(predicate.negate());
+                break;
+            case AND:
+                operands = drain();
+                predicates.addLast((t, parameters) -> {
+                    for (BiPredicate<T, Function<String, String>> operand : operands) {
+                        if (!operand.test(t, parameters)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+                break;
+            case OR:
+                operands = drain();
+                predicates.addLast((t, parameters) -> {
+                    for (BiPredicate<T, Function<String, String>> operand : operands) {
+                        if (operand.test(t, parameters)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                });
+                break;
+        }
+    }
+
+    public Predicate<T> toPredicate() {
+        return toPredicate(Function.identity());
+    }
+
+    public Predicate<T> toPredicate(Function<String, String> parameters) {
+        final BiPredicate<T, Function<String, String>> predicate = predicates.getFirst();
+        return t -> predicate.test(t, parameters);
+    }
+
+    private List<BiPredicate<T, Function<String, String>>> drain() {
+        final List<BiPredicate<T, Function<String, String>>> operands = new ArrayList<>(predicates);
+        predicates = new ArrayDeque<>();
+        return operands;
+    }
+
+    static <T> Function<T, Object> getter(Class<T> tClass, String fieldName) {
+        for (Class<?> aClass = tClass; aClass != null; aClass = aClass.getSuperclass()) {
+            try {
+                final Field field = aClass.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                return t -> {
+                    try {
+                        return field.get(t);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException("Unable to read " + fieldName, e);
+                    }
+                };
+            } catch (NoSuchFieldException e) {
+                // try the superclass
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " in " + tClass.getSimpleName());
+    }
+}
@@ -21,17 +21,23 @@ package com.github.nwillc.mysnipserver.dao.memory;
 import com.github.nwillc.mysnipserver.entity.Category;
 import com.github.nwillc.mysnipserver.entity.Snippet;
 import com.github.nwillc.opa.Dao;
-import com.github.nwillc.opa.memory.MemoryBackedDao;
+import com.github.nwillc.opa.query.QueryGenerator;
 import org.pmw.tinylog.Logger;
 
 import java.util.Optional;
 
-public class SnippetDao extends MemoryBackedDao<String, Snippet> {
+public class SnippetDao extends IndexedMemoryBackedDao<String, Snippet> {
     final Dao<String, Category> categoryDao;
 
     public SnippetDao(Dao<String, Category> categoryDao) {
+        super(Snippet.class);
         this.categoryDao = categoryDao;
-        Optional<Category> java = categoryDao.findAll().filter(c -> "Java".equals(c.getName())).findFirst();
+        Optional<Category> java = Optional.empty();
+        try {
+            java = categoryDao.find(new QueryGenerator<>(Category.class).eq("name", "Java").getQuery()).findFirst();
+        } catch (NoSuchFieldException e) {
+            Logger.error("Failed querying categories: " + e);
+        }
         Logger.info("Found java category: " + java.isPresent());
         java.ifPresent(c -> {
             save(new Snippet(c.getKey(), "import", "import java.io.Reader;\n"));
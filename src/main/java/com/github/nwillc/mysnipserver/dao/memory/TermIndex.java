@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.memory;
+
+import com.github.nwillc.opa.HasKey;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * An inverted index from the terms of a text field to the keys of the entities containing them. A contains
+ * comparison made up only of term characters can only match inside a single term, so its candidates are
+ * the postings of every term containing it. Those terms are found through a sorted map of every suffix of
+ * every term, a term contains the value when one of its suffixes starts with it, so a lookup costs a range
+ * scan over the matching suffixes rather than a pass over the whole vocabulary. Terms are indexed case folded.
+ */
+public class TermIndex<K, T extends HasKey<K>> implements Index<K, T> {
+    private final Map<String, Set<K>> postings = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Set<String>> suffixes = new ConcurrentSkipListMap<>();
+    private final Function<T, String> text;
+
+    public TermIndex(Function<T, String> text) {
+        this.text = text;
+    }
+
+    static Set<String> terms(String text) {
+        if (text == null) {
+            return new HashSet<>();
+        }
+        return Arrays.stream(text.split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    static boolean isTerm(String value) {
+        return !value.isEmpty() && value.codePoints().allMatch(Character::isLetterOrDigit);
+    }
+
+    @Override
+    public void add(T entity) {
+        for (String term : terms(Index.fold(text.apply(entity)))) {
+            postings.computeIfAbsent(term, t -> {
+                indexSuffixes(t);
+                return ConcurrentHashMap.newKeySet();
+            }).add(entity.getKey());
+        }
+    }
+
+    @Override
+    public void remove(T entity) {
+        for (String term : terms(Index.fold(text.apply(entity)))) {
+            postings.computeIfPresent(term, (t, keys) -> {
+                keys.remove(entity.getKey());
+                if (keys.isEmpty()) {
+                    unindexSuffixes(t);
+                    return null;
+                }
+                return keys;
+            });
+        }
+    }
+
+    @Override
+    public Optional<Set<K>> contains(String value) {
+        if (value == null || !isTerm(value)) {
+            return Optional.empty();
+        }
+        final String folded = Index.fold(value);
+        final Set<K> keys = new HashSet<>();
+        for (Set<String> terms : suffixes.subMap(folded, true, folded + Character.MAX_VALUE, false).values()) {
+            for (String term : terms) {
+                keys.addAll(postings.getOrDefault(term, Collections.emptySet()));
+            }
+        }
+        return Optional.of(keys);
+    }
+
+    int suffixCount() {
+        return suffixes.size();
+    }
+
+    private void indexSuffixes(String term) {
+        for (int i = 0; i < term.length(); i = term.offsetByCodePoints(i, 1)) {
+            suffixes.computeIfAbsent(term.substring(i), suffix -> ConcurrentHashMap.newKeySet()).add(term);
+        }
+    }
+
+    private void unindexSuffixes(String term) {
+        for (int i = 0; i < term.length(); i = term.offsetByCodePoints(i, 1)) {
+            suffixes.computeIfPresent(term.substring(i), (suffix, terms) -> {
+                terms.remove(term);
+                return terms.isEmpty() ? null : terms;
+            });
+        }
+    }
+}
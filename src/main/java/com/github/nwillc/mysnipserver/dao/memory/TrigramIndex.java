@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.memory;
+
+import com.github.nwillc.opa.HasKey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * An index from every three character substring of a text field to the keys of the entities containing
+ * it. Any text containing a value contains all of the value's trigrams, so intersecting their postings
+ * gives the candidates for an arbitrary substring of at least three characters. Trigrams are indexed case
+ * folded.
+ */
+public class TrigramIndex<K, T extends HasKey<K>> implements Index<K, T> {
+    static final int GRAM = 3;
+    private final Map<String, Set<K>> postings = new ConcurrentHashMap<>();
+    private final Function<T, String> text;
+
+    public TrigramIndex(Function<T, String> text) {
+        this.text = text;
+    }
+
+    static Set<String> trigrams(String text) {
+        final Set<String> trigrams = new HashSet<>();
+        if (text != null) {
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                trigrams.add(text.substring(i, i + GRAM));
+            }
+        }
+        return trigrams;
+    }
+
+    @Override
+    public void add(T entity) {
+        for (String trigram : trigrams(Index.fold(text.apply(entity)))) {
+            postings.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(entity.getKey());
+        }
+    }
+
+    @Override
+    public void remove(T entity) {
+        for (String trigram : trigrams(Index.fold(text.apply(entity)))) {
+            postings.computeIfPresent(trigram, (t, keys) -> {
+                keys.remove(entity.getKey());
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    @Override
+    public Optional<Set<K>> contains(String value) {
+        final String folded = Index.fold(value);
+        if (folded == null || folded.length() < GRAM) {
+            return Optional.empty();
+        }
+        final List<Set<K>> lists = new ArrayList<>();
+        for (String trigram : trigrams(folded)) {
+            final Set<K> keys = postings.get(trigram);
+            if (keys == null) {
+                return Optional.of(new HashSet<>());
+            }
+            lists.add(keys);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        final Set<K> candidates = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(lists.get(i));
+        }
+        return Optional.of(candidates);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.mongodb;
+
+import com.github.nwillc.mysnipserver.util.JsonMapper;
+import com.github.nwillc.opa.HasKey;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.pmw.tinylog.Logger;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes an entity's fields straight to and from BSON, the key through its accessors. Unknown
+ * document fields, like _id, are skipped and fields missing from a document keep their defaults.
+ */
+public final class EntityCodec<K, T extends HasKey<K>> implements Codec<T> {
+    private static final String KEY = "key";
+    private final Class<T> tClass;
+    private final Constructor<T> constructor;
+    private final Codec<K> keyCodec;
+    private final Map<String, Property> properties = new LinkedHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private EntityCodec(final Class<T> tClass, final CodecRegistry registry) throws NoSuchMethodException {
+        this.tClass = tClass;
+        constructor = tClass.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        keyCodec = (Codec<K>) registry.get(tClass.getMethod("getKey").getReturnType());
+        for (Class<?> aClass = tClass; aClass != null && aClass != HasKey.class; aClass = aClass.getSuperclass()) {
+            for (Field field : aClass.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic() ||
+                        KEY.equals(field.getName())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                properties.putIfAbsent(field.getName(),
+                        new Property(field, (Codec<Object>) registry.get(field.getType())));
+            }
+        }
+    }
+
+    /**
+     * A codec for the entity class, falling back to the Jackson JSON mapping if a field can not be
+     * encoded directly.
+     */
+    public static <K, T extends HasKey<K>> Codec<T> of(final Class<T> tClass, final CodecRegistry registry) {
+        try {
+            return new EntityCodec<>(tClass, registry);
+        } catch (NoSuchMethodException | CodecConfigurationException e) {
+            Logger.info("Using JSON mapping for " + tClass.getSimpleName() + ": " + e.getMessage());
+            return new JsonCodec<>(tClass, registry.get(Document.class));
+        }
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        final T entity;
+        try {
+            entity = constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can not create " + tClass.getSimpleName(), e);
+        }
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            final String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            if (KEY.equals(name)) {
+                entity.setKey(keyCodec.decode(reader, decoderContext));
+                continue;
+            }
+            final Property property = properties.get(name);
+            if (property == null) {
+                reader.skipValue();
+                continue;
+            }
+            property.set(entity, property.codec.decode(reader, decoderContext));
+        }
+        reader.readEndDocument();
+        return entity;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T entity, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeName(KEY);
+        keyCodec.encode(writer, entity.getKey(), encoderContext);
+        for (Map.Entry<String, Property> entry : properties.entrySet()) {
+            writer.writeName(entry.getKey());
+            final Object value = entry.getValue().get(entity);
+            if (value == null) {
+                writer.writeNull();
+            } else {
+                entry.getValue().codec.encode(writer, value, encoderContext);
+            }
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return tClass;
+    }
+
+    private static final class Property {
+        private final Field field;
+        private final Codec<Object> codec;
+
+        Property(Field field, Codec<Object> codec) {
+            this.field = field;
+            this.codec = codec;
+        }
+
+        Object get(Object entity) {
+            try {
+                return field.get(entity);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Can not read " + field.getName(), e);
+            }
+        }
+
+        void set(Object entity, Object value) {
+            try {
+                field.set(entity, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Can not write " + field.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * The original mapping, through a Document rendered to and parsed from JSON.
+     */
+    static final class JsonCodec<T> implements Codec<T>, JsonMapper {
+        private final Class<T> tClass;
+        private final Codec<Document> documentCodec;
+
+        JsonCodec(Class<T> tClass, Codec<Document> documentCodec) {
+            this.tClass = tClass;
+            this.documentCodec = documentCodec;
+        }
+
+        @Override
+        public T decode(BsonReader reader, DecoderContext decoderContext) {
+            return fromJson(documentCodec.decode(reader, decoderContext).toJson(), tClass);
+        }
+
+        @Override
+        public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+            documentCodec.encode(writer, Document.parse(toJson(value)), encoderContext);
+        }
+
+        @Override
+        public Class<T> getEncoderClass() {
+            return tClass;
+        }
+    }
+}
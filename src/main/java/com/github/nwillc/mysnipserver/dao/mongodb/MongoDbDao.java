@@ -18,65 +18,235 @@
 package com.github.nwillc.mysnipserver.dao.mongodb;
 
 
-import com.github.nwillc.mysnipserver.util.JsonMapper;
+import com.github.nwillc.mysnipserver.dao.BatchDao;
+import com.github.nwillc.mysnipserver.dao.PagingDao;
+import com.github.nwillc.mysnipserver.dao.ProjectingDao;
+import com.github.nwillc.mysnipserver.dao.QueryPlan;
+import com.github.nwillc.mysnipserver.entity.Searchable;
 import com.github.nwillc.opa.Dao;
 import com.github.nwillc.opa.HasKey;
 import com.github.nwillc.opa.query.Query;
-import com.mongodb.BasicDBObject;
+import com.mongodb.Block;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.pmw.tinylog.Logger;
 
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Sorts.ascending;
+import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
 
-public class MongoDbDao<K, T extends HasKey<K>> implements Dao<K, T>, JsonMapper {
+public class MongoDbDao<K, T extends HasKey<K>> implements PagingDao<K, T>, ProjectingDao<K, T>, BatchDao<K, T> {
+    private static final String KEY = "key";
     private final Class<T> tClass;
     private final MongoCollection<Document> collection;
+    private final MongoCollection<T> entities;
+    private final Map<String, MongoQueryMapper<T>> plans;
+    private final Set<String> textFields;
+    private final Bson projection;
 
     public MongoDbDao(final MongoClient client, final Class<T> tClass) {
+        this(client, tClass, MongoSearch.REGEX);
+    }
+
+    public MongoDbDao(final MongoClient client, final Class<T> tClass, final MongoSearch search) {
         this.tClass = tClass;
         collection =  client.getDatabase("snippets").getCollection(tClass.getSimpleName());
-        collection.createIndex(new BasicDBObject("key",1));
+        createKeyIndex();
+        entities = collection.withDocumentClass(tClass).withCodecRegistry(fromRegistries(
+                fromCodecs(EntityCodec.of(tClass, collection.getCodecRegistry())), collection.getCodecRegistry()));
+        plans = new ConcurrentHashMap<>();
+        textFields = search == MongoSearch.TEXT ? createTextIndex() : Collections.emptySet();
+        projection = null;
+    }
+
+    private MongoDbDao(final MongoDbDao<K, T> dao, final Bson projection) {
+        tClass = dao.tClass;
+        collection = dao.collection;
+        entities = dao.entities;
+        plans = dao.plans;
+        textFields = dao.textFields;
+        this.projection = projection;
+    }
+
+    @Override
+    public Dao<K, T> project(Set<String> fields) {
+        final Set<String> included = new HashSet<>();
+        included.add(KEY);
+        for (String field : fields) {
+            if (hasField(field)) {
+                included.add(field);
+            }
+        }
+        return new MongoDbDao<>(this, Projections.include(included.toArray(new String[included.size()])));
     }
 
     @Override
     public Optional<T> findOne(K key) {
-        Document document = collection.find(eq("key",key)).first();
-        return document == null ? Optional.empty() : Optional.of(fromJson(document.toJson(), tClass));
+        return Optional.ofNullable(find(eq("key",key)).first());
     }
 
     @Override
     public Stream<T> findAll() {
-        return StreamSupport.stream(collection.find().spliterator(), false)
-                .map(d -> fromJson(d.toJson(),tClass));
+        return StreamSupport.stream(find(new BsonDocument()).spliterator(), false);
     }
 
     @Override
     public Stream<T> find(Query<T> query) {
-        final MongoQueryMapper<T> mapper = new MongoQueryMapper<>();
+        final MongoQueryMapper<T> mapper = new MongoQueryMapper<>(textFields);
         query.accept(mapper);
-        return StreamSupport.stream(collection.find(mapper.toBson()).spliterator(), false)
-                .map(d -> fromJson(d.toJson(), tClass));
+        return StreamSupport.stream(find(mapper.toBson()).spliterator(), false);
+    }
+
+    @Override
+    public Stream<T> find(QueryPlan<T> plan, Map<String, String> parameters) {
+        return StreamSupport.stream(find(toBson(plan, parameters)).spliterator(), false);
+    }
+
+    @Override
+    public Stream<T> findAll(K after, int first) {
+        return page(new BsonDocument(), after, first);
+    }
+
+    @Override
+    public Stream<T> find(QueryPlan<T> plan, Map<String, String> parameters, K after, int first) {
+        return page(toBson(plan, parameters), after, first);
     }
 
     @Override
     public void save(T entity) {
-        Optional<T> one = findOne(entity.getKey());
-        Document document = Document.parse(toJson(entity));
-        if (one.isPresent()) {
-            document = new Document("$set", document);
-            collection.updateMany(eq("key",entity.getKey()), document);
-        } else {
-            collection.insertOne(document);
-        }
+        entities.replaceOne(eq("key",entity.getKey()), entity, new UpdateOptions().upsert(true));
     }
 
     @Override
     public void delete(K key) {
         collection.deleteMany(eq("key",key));
     }
+
+    @Override
+    public Stream<T> findAll(Collection<K> keys) {
+        if (keys.isEmpty()) {
+            return Stream.empty();
+        }
+        final Map<K, T> found = new HashMap<>();
+        find(in("key", keys)).forEach((Block<T>) entity -> found.put(entity.getKey(), entity));
+        return keys.stream().map(found::get).filter(Objects::nonNull);
+    }
+
+    @Override
+    public void saveAll(Collection<T> toSave) {
+        if (toSave.isEmpty()) {
+            return;
+        }
+        final UpdateOptions upsert = new UpdateOptions().upsert(true);
+        final List<WriteModel<T>> writes = toSave.stream()
+                .map(entity -> new ReplaceOneModel<>(eq("key", entity.getKey()), entity, upsert))
+                .collect(Collectors.toList());
+        entities.bulkWrite(writes);
+    }
+
+    @Override
+    public void deleteAll(Collection<K> keys) {
+        if (!keys.isEmpty()) {
+            collection.deleteMany(in("key", keys));
+        }
+    }
+
+    private FindIterable<T> find(Bson filter) {
+        final FindIterable<T> found = entities.find(filter);
+        return projection == null ? found : found.projection(projection);
+    }
+
+    private boolean hasField(String name) {
+        for (Class<?> aClass = tClass; aClass != null; aClass = aClass.getSuperclass()) {
+            for (Field field : aClass.getDeclaredFields()) {
+                if (field.getName().equals(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void createKeyIndex() {
+        final IndexOptions unique = new IndexOptions().unique(true);
+        try {
+            collection.createIndex(Indexes.ascending("key"), unique);
+        } catch (MongoException e) {
+            Logger.warn("Replacing key index on " + collection.getNamespace() + " with a unique one: " + e.getMessage());
+            try {
+                collection.dropIndex(Indexes.ascending("key"));
+                collection.createIndex(Indexes.ascending("key"), unique);
+            } catch (MongoException again) {
+                Logger.error("Could not create unique key index on " + collection.getNamespace() + ": " + again);
+                collection.createIndex(Indexes.ascending("key"));
+            }
+        }
+    }
+
+    private Set<String> createTextIndex() {
+        final Set<String> fields = new HashSet<>();
+        for (Class<?> aClass = tClass; aClass != null; aClass = aClass.getSuperclass()) {
+            for (Field field : aClass.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Searchable.class)) {
+                    fields.add(field.getName());
+                }
+            }
+        }
+        if (fields.isEmpty()) {
+            return fields;
+        }
+        try {
+            collection.createIndex(Indexes.compoundIndex(fields.stream().map(Indexes::text).collect(Collectors.toList())));
+        } catch (MongoException e) {
+            Logger.warn("Could not create text index on " + fields + ", searching with regular expressions: " + e);
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(fields);
+    }
+
+    private Bson toBson(QueryPlan<T> plan, Map<String, String> parameters) {
+        return plans.computeIfAbsent(plan.getShape(), shape -> {
+            final MongoQueryMapper<T> mapper = new MongoQueryMapper<>(textFields);
+            plan.getQuery().accept(mapper);
+            return mapper;
+        }).toBson(parameters::get);
+    }
+
+    private Stream<T> page(Bson filter, K after, int first) {
+        if (first <= 0) {
+            return Stream.empty();
+        }
+        final Bson pageFilter = after == null ? filter : and(filter, gt("key", after));
+        return StreamSupport.stream(find(pageFilter).sort(ascending("key")).limit(first).spliterator(), false);
+    }
 }
@@ -24,45 +24,137 @@ import com.mongodb.client.model.Filters;
 import org.bson.conversions.Bson;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
+/**
+ * Maps a query into a Mongo filter. Contains comparisons are escaped case insensitive regular expressions,
+ * unless the field is covered by a text index and the value is made of whole words, in which case one such
+ * comparison, or an OR of several with the same value, is answered by a $text phrase search, narrowed by the
+ * regular expression when it covers fewer fields than the index. Comparisons that can't use the index keep
+ * the plain substring expression.
+ */
 public class MongoQueryMapper<T> implements QueryMapper<T> {
-    private Deque<Bson> bsons = new ArrayDeque<>();
+    private static final Pattern WORDS = Pattern.compile("[\\p{L}\\p{N}]+(\\s+[\\p{L}\\p{N}]+)*");
+    private final Set<String> textFields;
+    private Deque<Function<Function<String, String>, Node>> nodes = new ArrayDeque<>();
+
+    public MongoQueryMapper() {
+        this(Collections.emptySet());
+    }
+
+    public MongoQueryMapper(Set<String> textFields) {
+        this.textFields = textFields;
+    }
 
     @Override
     public void accept(Query<T> tQuery) {
         String fieldName, value;
-        Bson bson;
+        Function<Function<String, String>, Node> node;
+        List<Function<Function<String, String>, Node>> operands;
 
         switch (tQuery.getOperator()) {
             case EQ:
                 fieldName = ((Comparison<T>) tQuery).getFieldName();
                 value = ((Comparison<T>) tQuery).getValue();
-                bsons.addLast(Filters.eq(fieldName, value));
+                nodes.addLast(parameters -> new Node(Filters.eq(fieldName, parameters.apply(value))));
                 break;
             case CONTAINS:
                 fieldName = ((Comparison<T>) tQuery).getFieldName();
                 value = ((Comparison<T>) tQuery).getValue();
-                bsons.addLast(Filters.regex(fieldName, ".*" + value + ".*", "i"));
+                nodes.addLast(parameters -> contains(fieldName, parameters.apply(value)));
                 break;
             case NOT:
-                bson = bsons.removeLast();
-                bsons.addLast(Filters.not(bson));
+                node = nodes.removeLast();
+                nodes.addLast(parameters -> new Node(Filters.not(node.apply(parameters).toBson(false))));
                 break;
             case AND:
-                bson = Filters.and(bsons);
-                bsons = new ArrayDeque<>();
-                bsons.addLast(bson);
+                operands = new ArrayList<>(nodes);
+                nodes = new ArrayDeque<>();
+                nodes.addLast(parameters -> and(bind(operands, parameters)));
                 break;
             case OR:
-                bson = Filters.or(bsons);
-                bsons = new ArrayDeque<>();
-                bsons.addLast(bson);
+                operands = new ArrayList<>(nodes);
+                nodes = new ArrayDeque<>();
+                nodes.addLast(parameters -> or(bind(operands, parameters)));
                 break;
         }
     }
 
     public Bson toBson() {
-        return bsons.getFirst();
+        return toBson(Function.identity());
+    }
+
+    public Bson toBson(Function<String, String> parameters) {
+        return nodes.getFirst().apply(parameters).toBson(true);
+    }
+
+    private Node contains(String fieldName, String value) {
+        final Bson regex = Filters.regex(fieldName, Pattern.quote(value), "i");
+        return textFields.contains(fieldName) && WORDS.matcher(value).matches() ?
+                new Node(regex, value, Collections.singleton(fieldName)) : new Node(regex);
+    }
+
+    private Node and(List<Node> operands) {
+        final List<Bson> bsons = new ArrayList<>();
+        boolean textUsed = false;
+        for (Node operand : operands) {
+            bsons.add(operand.toBson(!textUsed));
+            textUsed |= operand.text != null;
+        }
+        return new Node(Filters.and(bsons));
+    }
+
+    private Node or(List<Node> operands) {
+        final List<Bson> bsons = new ArrayList<>();
+        final Set<String> fields = new HashSet<>();
+        String text = operands.isEmpty() ? null : operands.get(0).text;
+        for (Node operand : operands) {
+            bsons.add(operand.toBson(false));
+            if (text != null && !text.equals(operand.text)) {
+                text = null;
+            }
+            fields.addAll(operand.fields);
+        }
+        return text == null ? new Node(Filters.or(bsons)) : new Node(Filters.or(bsons), text, fields);
+    }
+
+    private List<Node> bind(List<Function<Function<String, String>, Node>> operands,
+                            Function<String, String> parameters) {
+        final List<Node> bound = new ArrayList<>(operands.size());
+        for (Function<Function<String, String>, Node> operand : operands) {
+            bound.add(operand.apply(parameters));
+        }
+        return bound;
+    }
+
+    private final class Node {
+        private final Bson bson;
+        private final String text;
+        private final Set<String> fields;
+
+        private Node(Bson bson) {
+            this(bson, null, Collections.emptySet());
+        }
+
+        private Node(Bson bson, String text, Set<String> fields) {
+            this.bson = bson;
+            this.text = text;
+            this.fields = fields;
+        }
+
+        private Bson toBson(boolean useText) {
+            if (!useText || text == null) {
+                return bson;
+            }
+            final Bson search = Filters.text('"' + text + '"');
+            return fields.containsAll(textFields) ? search : Filters.and(search, bson);
+        }
     }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.mongodb;
+
+import org.pmw.tinylog.Logger;
+
+import java.util.Locale;
+
+/**
+ * How a {@link MongoDbDao} answers contains comparisons.
+ */
+public enum MongoSearch {
+    /**
+     * Case insensitive substring match with an escaped regular expression, a collection scan.
+     */
+    REGEX,
+    /**
+     * Whole word matches through a $text search of a text index on the entity's searchable fields, where the
+     * value is made of words and the query allows it, the same regular expressions as REGEX otherwise.
+     */
+    TEXT;
+
+    /**
+     * The named mode, or REGEX when no name, or an unknown one, is given.
+     */
+    public static MongoSearch of(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return REGEX;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Logger.warn("Unknown Mongo search mode " + name + ", using " + REGEX);
+            return REGEX;
+        }
+    }
+}
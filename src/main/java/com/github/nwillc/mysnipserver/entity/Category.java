@@ -24,6 +24,7 @@ import static com.github.nwillc.mysnipserver.controller.graphql.schema.SnippetSc
 
 @GraphQLName(CATEGORY)
 public class Category extends Entity {
+    @Indexed
     private String name;
 
     public Category() {
@@ -24,8 +24,11 @@ import static com.github.nwillc.mysnipserver.controller.graphql.schema.SnippetSc
 
 @GraphQLName(SNIPPET)
 public class Snippet extends Entity {
+    @Indexed
     private String category;
+    @Searchable
     private String title;
+    @Searchable
     private String body;
 
     public Snippet() {
@@ -34,22 +34,33 @@ import java.util.Optional;
 public final class GoogleIdTokenUtil {
     private static final String CLIENT_ID = System.getenv("CLIENT_ID");
     private static final String ISSUER = "accounts.google.com";
+    private static GoogleIdTokenVerifier verifier;
 
     private GoogleIdTokenUtil() {
     }
 
     public static Optional<Payload> verify(final String googleTokenId) throws GeneralSecurityException, IOException {
-        HttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        JsonFactory jsonFactory = JacksonFactory.getDefaultInstance();
-        GoogleIdTokenVerifier verifier = new Builder(httpTransport, jsonFactory)
-                .setAudience(Collections.singletonList(CLIENT_ID))
-                .setIssuer(ISSUER)
-                .build();
-        GoogleIdToken idToken = verifier.verify(googleTokenId);
+        GoogleIdToken idToken = verifier().verify(googleTokenId);
         if (idToken != null) {
             return Optional.of(idToken.getPayload());
         }
         return Optional.empty();
     }
 
+    /**
+     * One verifier for every sign in, so Google's public keys are fetched once and again only as they
+     * expire, rather than for every token.
+     */
+    private static synchronized GoogleIdTokenVerifier verifier() throws GeneralSecurityException, IOException {
+        if (verifier == null) {
+            HttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+            JsonFactory jsonFactory = JacksonFactory.getDefaultInstance();
+            verifier = new Builder(httpTransport, jsonFactory)
+                    .setAudience(Collections.singletonList(CLIENT_ID))
+                    .setIssuer(ISSUER)
+                    .build();
+        }
+        return verifier;
+    }
+
 }
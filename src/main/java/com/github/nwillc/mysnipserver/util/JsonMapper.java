@@ -17,33 +17,49 @@
 
 package com.github.nwillc.mysnipserver.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 public interface JsonMapper {
-    ThreadLocal<ObjectMapper> mapper = ThreadLocal.withInitial(() ->
-            new ObjectMapper().registerModule(new Jdk8Module())
-                    .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+    // One mapper shared by every thread, safe once configured. A mapper per thread would be built again, with
+    // its serializers found again, for every virtual thread
+    ObjectMapper mapper = new ObjectMapper().registerModule(new Jdk8Module())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
     default ObjectMapper getMapper() {
-        return mapper.get();
+        return mapper;
     }
 
     default String toJson(Object obj) {
         try {
-            return mapper.get().writeValueAsString(obj);
+            return mapper.writeValueAsString(obj);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("JSON generation", e);
         }
     }
 
+    /**
+     * Write an object as JSON straight to a stream, without rendering it to a string first. The stream is
+     * flushed but left open.
+     */
+    default void writeJson(Object obj, OutputStream outputStream) {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            mapper.writeValue(generator, obj);
+        } catch (IOException e) {
+            throw new RuntimeException("JSON generation", e);
+        }
+    }
+
     default <T> T fromJson(String json, Class<T> tClass) {
         try {
-            return mapper.get().readValue(json, tClass);
+            return mapper.readValue(json, tClass);
         } catch (IOException e) {
             throw new RuntimeException("JSON parsing", e);
         }
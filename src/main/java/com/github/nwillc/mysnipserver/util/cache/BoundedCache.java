@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A cache holding at most a maximum total weight of values, weighing each value as one entry by
+ * default. Values can expire a fixed time after being written. Entries are kept in access order and
+ * dropped according to the {@link Eviction} policy.
+ */
+public final class BoundedCache<K, V> {
+    private final long maximumWeight;
+    private final ToLongFunction<V> weigher;
+    private final long ttlMillis;
+    private final Eviction eviction;
+    private final CacheStats stats;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long weight;
+    private long invalidations;
+
+    /**
+     * @param maximumWeight the most weight held at once
+     * @param weigher       the weight of a value, for example its size in bytes
+     * @param ttlMillis     how long a value lives after being written, zero or less for ever
+     */
+    public BoundedCache(long maximumWeight, ToLongFunction<V> weigher, long ttlMillis, Eviction eviction,
+                        CacheStats stats) {
+        this(maximumWeight, weigher, ttlMillis, eviction, stats, System::currentTimeMillis);
+    }
+
+    public BoundedCache(long maximumEntries, long ttlMillis, Eviction eviction, CacheStats stats) {
+        this(maximumEntries, v -> 1, ttlMillis, eviction, stats);
+    }
+
+    BoundedCache(long maximumWeight, ToLongFunction<V> weigher, long ttlMillis, Eviction eviction,
+                 CacheStats stats, LongSupplier clock) {
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.ttlMillis = ttlMillis;
+        this.eviction = eviction;
+        this.stats = stats;
+        this.clock = clock;
+        sketch = eviction == Eviction.TINY_LFU ? new FrequencySketch(Math.min(maximumWeight, 1 << 16)) : null;
+    }
+
+    /**
+     * The cached value, or null if it is absent or expired.
+     */
+    public synchronized V getIfPresent(K key) {
+        record(key);
+        final Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expired(clock.getAsLong())) {
+            remove(key);
+            stats.recordEviction();
+        } else if (entry != null) {
+            stats.recordHit();
+            return entry.value;
+        }
+        stats.recordMiss();
+        return null;
+    }
+
+    /**
+     * A stamp to pass to {@link #put(Object, Object, long)}, taken before loading a value.
+     */
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    public synchronized void put(K key, V value) {
+        put(key, value, invalidations);
+    }
+
+    /**
+     * Cache a value unless something was invalidated since the stamp was taken, in which case the value
+     * may already be stale.
+     */
+    public synchronized void put(K key, V value, long stamp) {
+        if (stamp != invalidations) {
+            return;
+        }
+        final long valueWeight = weigher.applyAsLong(value);
+        if (valueWeight > maximumWeight) {
+            stats.recordRejection();
+            return;
+        }
+        // A key already cached was admitted once, so an update replaces it rather than competing for room
+        final boolean present = entries.containsKey(key);
+        remove(key);
+        if (!makeRoom(key, valueWeight, present)) {
+            stats.recordRejection();
+            return;
+        }
+        entries.put(key, new Entry<>(value, valueWeight, ttlMillis > 0 ? clock.getAsLong() + ttlMillis : Long.MAX_VALUE));
+        weight += valueWeight;
+        stats.setSize(entries.size());
+    }
+
+    public synchronized void invalidate(K key) {
+        invalidations++;
+        remove(key);
+    }
+
+    /**
+     * Invalidate every entry whose key matches.
+     */
+    public synchronized void invalidateIf(Predicate<K> matches) {
+        invalidations++;
+        final Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (matches.test(entry.getKey())) {
+                iterator.remove();
+                weight -= entry.getValue().weight;
+            }
+        }
+        stats.setSize(entries.size());
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations++;
+        entries.clear();
+        weight = 0;
+        stats.setSize(0);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    private boolean makeRoom(K candidate, long needed, boolean present) {
+        final Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        boolean admitted = sketch == null || present;
+        while (weight + needed > maximumWeight && eldest.hasNext()) {
+            final Map.Entry<K, Entry<V>> victim = eldest.next();
+            if (!admitted && !victim.getValue().expired(clock.getAsLong())) {
+                if (sketch.frequency(candidate) <= sketch.frequency(victim.getKey())) {
+                    return false;
+                }
+                admitted = true;
+            }
+            eldest.remove();
+            weight -= victim.getValue().weight;
+            stats.recordEviction();
+        }
+        return true;
+    }
+
+    private void remove(K key) {
+        final Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+            stats.setSize(entries.size());
+        }
+    }
+
+    private void record(K key) {
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long expires;
+
+        Entry(V value, long weight, long expires) {
+            this.value = value;
+            this.weight = weight;
+            this.expires = expires;
+        }
+
+        boolean expired(long now) {
+            return now >= expires;
+        }
+    }
+}
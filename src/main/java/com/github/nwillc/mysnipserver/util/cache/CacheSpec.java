@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.cache;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * The configuration of one entity's cache, written {@code Entity=size[:ttlSeconds[:eviction]]}. The size
+ * is a count of entries, or a number of bytes when suffixed with kb or mb.
+ */
+public final class CacheSpec {
+    private static final long KB = 1024;
+    private static final long OBJECT_BYTES = 16;
+    private static final long REFERENCE_BYTES = 8;
+    private static final long STRING_BYTES = 40;
+    private final String entity;
+    private final long size;
+    private final boolean bytes;
+    private final long ttlSeconds;
+    private final Eviction eviction;
+
+    public CacheSpec(String entity, long size, boolean bytes, long ttlSeconds, Eviction eviction) {
+        this.entity = entity;
+        this.size = size;
+        this.bytes = bytes;
+        this.ttlSeconds = ttlSeconds;
+        this.eviction = eviction;
+    }
+
+    /**
+     * Parse a comma separated list of specifications.
+     *
+     * @throws IllegalArgumentException if one is malformed
+     */
+    public static List<CacheSpec> parse(String specs) {
+        final List<CacheSpec> list = new ArrayList<>();
+        if (specs == null || specs.trim().isEmpty()) {
+            return list;
+        }
+        for (String spec : specs.split(",")) {
+            final String[] entityAndRest = spec.trim().split("=", 2);
+            if (entityAndRest.length != 2 || entityAndRest[0].isEmpty()) {
+                throw new IllegalArgumentException("Cache should be Entity=size[:ttlSeconds[:eviction]]: " + spec);
+            }
+            final String[] parts = entityAndRest[1].split(":");
+            if (parts.length > 3) {
+                throw new IllegalArgumentException("Too many cache settings: " + spec);
+            }
+            String size = parts[0].trim().toLowerCase(Locale.ROOT);
+            long multiplier = 1;
+            if (size.endsWith("kb")) {
+                multiplier = KB;
+            } else if (size.endsWith("mb")) {
+                multiplier = KB * KB;
+            }
+            if (multiplier > 1) {
+                size = size.substring(0, size.length() - 2);
+            }
+            try {
+                list.add(new CacheSpec(entityAndRest[0].trim(),
+                        Long.parseLong(size) * multiplier,
+                        multiplier > 1,
+                        parts.length > 1 ? Long.parseLong(parts[1].trim()) : 0,
+                        parts.length > 2 ? Eviction.valueOf(parts[2].trim().toUpperCase(Locale.ROOT)) : Eviction.TINY_LFU));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Bad cache setting " + spec + ": " + e.getMessage(), e);
+            }
+        }
+        return list;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public <K, V> BoundedCache<K, V> newCache(String name) {
+        final ToLongFunction<V> weigher = bytes ? CacheSpec::estimateBytes : v -> 1;
+        return new BoundedCache<>(size, weigher, TimeUnit.SECONDS.toMillis(ttlSeconds), eviction,
+                CacheStats.named(name));
+    }
+
+    /**
+     * A rough estimate of an object's heap size, counting its own fields and the characters of its strings.
+     */
+    public static long estimateBytes(Object object) {
+        long bytes = OBJECT_BYTES;
+        for (Class<?> aClass = object.getClass(); aClass != null; aClass = aClass.getSuperclass()) {
+            for (Field field : aClass.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                bytes += REFERENCE_BYTES;
+                if (field.getType() == String.class) {
+                    field.setAccessible(true);
+                    try {
+                        final String value = (String) field.get(object);
+                        bytes += value == null ? 0 : STRING_BYTES + 2L * value.length();
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException("Can not weigh " + field, e);
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return entity + '=' + (bytes ? size / KB + "kb" : Long.toString(size)) + ':' + ttlSeconds + ':' + eviction;
+    }
+}
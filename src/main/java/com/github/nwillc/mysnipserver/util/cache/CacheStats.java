@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.cache;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for a cache. Named instances are registered so that they can all be reported together.
+ */
+public final class CacheStats {
+    private static final Map<String, CacheStats> REGISTRY = new ConcurrentSkipListMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * The registered counters with the given name, created on first use.
+     */
+    public static CacheStats named(String name) {
+        return REGISTRY.computeIfAbsent(name, n -> new CacheStats());
+    }
+
+    /**
+     * A snapshot of every registered cache's counters.
+     */
+    public static Map<String, Map<String, Object>> all() {
+        final Map<String, Map<String, Object>> all = new LinkedHashMap<>();
+        REGISTRY.forEach((name, stats) -> all.put(name, stats.toMap()));
+        return Collections.unmodifiableMap(all);
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    /**
+     * A value that was not cached at all, refused admission or too heavy to hold.
+     */
+    public void recordRejection() {
+        rejections.increment();
+    }
+
+    void setSize(long size) {
+        this.size.set(size);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    public long getSize() {
+        return size.get();
+    }
+
+    public double getHitRatio() {
+        final long hitCount = getHits();
+        final long requests = hitCount + getMisses();
+        return requests == 0 ? 0.0 : (double) hitCount / requests;
+    }
+
+    public Map<String, Object> toMap() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", getHits());
+        map.put("misses", getMisses());
+        map.put("hitRatio", getHitRatio());
+        map.put("evictions", getEvictions());
+        map.put("rejections", getRejections());
+        map.put("size", getSize());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats" + toMap();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A limited number of workers with a limited queue. Work beyond what the workers and queue can hold is
+ * refused at once, so that under load callers fail fast instead of waiting without limit. Named instances
+ * are registered so that their counters can be reported together.
+ * <p>
+ * Workers are either a fixed pool of platform threads, or a virtual thread per task of which only as
+ * many as there are workers run at once, the rest waiting their turn as the queue.
+ */
+public final class BoundedExecutor {
+    private static final Map<String, BoundedExecutor> REGISTRY = new ConcurrentSkipListMap<>();
+    private final String name;
+    private final Executor executor;
+    private final Semaphore capacity;
+    private final Semaphore running;
+    private final int threads;
+    private final int queue;
+    private final boolean virtual;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+
+    /**
+     * An executor with a fixed pool of platform threads.
+     */
+    public BoundedExecutor(String name, int threads, int queue) {
+        this(name, threads, queue, Optional.empty());
+    }
+
+    /**
+     * An executor running each task on its own thread from the factory, typically a virtual thread, or on
+     * a fixed pool of platform threads when there is no factory.
+     */
+    public BoundedExecutor(String name, int threads, int queue, Optional<ThreadFactory> perTask) {
+        if (threads < 1 || queue < 0) {
+            throw new IllegalArgumentException("Executor needs a thread and a non negative queue: " + threads + ':'
+                    + queue);
+        }
+        this.name = name;
+        this.threads = threads;
+        this.queue = queue;
+        capacity = new Semaphore(threads + queue);
+        virtual = perTask.isPresent();
+        if (virtual) {
+            final ThreadFactory factory = perTask.get();
+            running = new Semaphore(threads);
+            executor = runnable -> factory.newThread(runnable).start();
+        } else {
+            final AtomicInteger count = new AtomicInteger();
+            running = null;
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, name + '-' + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        REGISTRY.put(name, this);
+    }
+
+    /**
+     * A snapshot of every registered executor's counters.
+     */
+    public static Map<String, Map<String, Object>> all() {
+        final Map<String, Map<String, Object>> all = new LinkedHashMap<>();
+        REGISTRY.forEach((name, executor) -> all.put(name, executor.toMap()));
+        return Collections.unmodifiableMap(all);
+    }
+
+    /**
+     * Run a task on a worker.
+     *
+     * @throws RejectedExecutionException if the workers and queue are full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return submitAll(Collections.singletonList(task)).get(0);
+    }
+
+    /**
+     * Run all the tasks on workers, or none of them if there is not room for them all.
+     *
+     * @throws RejectedExecutionException if the workers and queue can not take every task
+     */
+    public <T> List<CompletableFuture<T>> submitAll(List<Supplier<T>> tasks) {
+        if (!capacity.tryAcquire(tasks.size())) {
+            rejected.add(tasks.size());
+            throw new RejectedExecutionException("Busy, " + getActive() + " running and " + getQueued() + " queued");
+        }
+        admitted.addAndGet(tasks.size());
+        final List<CompletableFuture<T>> futures = new ArrayList<>(tasks.size());
+        for (Supplier<T> task : tasks) {
+            futures.add(CompletableFuture.supplyAsync(() -> run(task), executor));
+        }
+        return futures;
+    }
+
+    private <T> T run(Supplier<T> task) {
+        if (running != null) {
+            running.acquireUninterruptibly();
+        }
+        active.incrementAndGet();
+        try {
+            return task.get();
+        } finally {
+            active.decrementAndGet();
+            admitted.decrementAndGet();
+            completed.increment();
+            if (running != null) {
+                running.release();
+            }
+            capacity.release();
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getQueued() {
+        return Math.max(0, admitted.get() - active.get());
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public Map<String, Object> toMap() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("threads", threads);
+        map.put("virtual", virtual);
+        map.put("queue", queue);
+        map.put("active", getActive());
+        map.put("queued", getQueued());
+        map.put("completed", getCompleted());
+        map.put("rejected", getRejected());
+        return map;
+    }
+
+    public void shutdown() {
+        if (executor instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) executor).shutdown();
+        }
+        REGISTRY.remove(name, this);
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedExecutor" + toMap();
+    }
+}
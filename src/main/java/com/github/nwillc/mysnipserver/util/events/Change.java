@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.events;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A small delta describing one saved or deleted entity, with just enough of its fields for a client to
+ * update a listing without fetching it.
+ */
+public final class Change {
+    public enum Operation {
+        SAVE,
+        DELETE
+    }
+
+    private final long id;
+    private final Operation operation;
+    private final String entity;
+    private final String key;
+    private final Map<String, Object> fields;
+
+    public Change(Operation operation, String entity, String key, Map<String, Object> fields) {
+        this(0, operation, entity, key, fields);
+    }
+
+    private Change(long id, Operation operation, String entity, String key, Map<String, Object> fields) {
+        this.id = id;
+        this.operation = operation;
+        this.entity = entity;
+        this.key = key;
+        this.fields = fields == null ? Collections.emptyMap() : Collections.unmodifiableMap(fields);
+    }
+
+    public static Change deleted(String entity, String key) {
+        return new Change(Operation.DELETE, entity, key, null);
+    }
+
+    /**
+     * This change with its position in a feed.
+     */
+    Change withId(long id) {
+        return new Change(id, operation, entity, key, fields);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return "Change{" +
+                "id=" + id +
+                ", operation=" + operation +
+                ", entity='" + entity + '\'' +
+                ", key='" + key + '\'' +
+                '}';
+    }
+}
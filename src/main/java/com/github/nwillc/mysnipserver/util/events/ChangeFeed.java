@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.events;
+
+import org.pmw.tinylog.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Publishes changes to subscribers, numbering them in order. Changes are numbered and delivered under one
+ * lock, so every subscriber sees them in the order of their ids even when published concurrently. The most
+ * recent changes are kept so that a subscriber reconnecting can catch up on what it missed.
+ */
+public final class ChangeFeed {
+    private final Set<Consumer<Change>> subscribers = new CopyOnWriteArraySet<>();
+    private final Deque<Change> recent = new ArrayDeque<>();
+    private final int retained;
+    private long lastId;
+
+    public ChangeFeed(int retained) {
+        this.retained = retained;
+    }
+
+    /**
+     * Number a change and hand it to every subscriber. Subscribers are called on the publishing thread,
+     * holding up other publishers, and should not block.
+     */
+    public synchronized void publish(Change change) {
+        final Change numbered = change.withId(++lastId);
+        recent.addLast(numbered);
+        if (recent.size() > retained) {
+            recent.removeFirst();
+        }
+        for (Consumer<Change> subscriber : subscribers) {
+            try {
+                subscriber.accept(numbered);
+            } catch (RuntimeException e) {
+                Logger.warn("Change subscriber failed: " + e);
+            }
+        }
+    }
+
+    public void subscribe(Consumer<Change> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<Change> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * The id of the latest change published, 0 before any.
+     */
+    public synchronized long getLastId() {
+        return lastId;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Act on the retained changes published after the given id while holding back new ones, so that
+     * anything the action starts delivering to sees every later change exactly once.
+     */
+    public synchronized void replay(long id, Consumer<List<Change>> action) {
+        action.accept(since(id));
+    }
+
+    /**
+     * The retained changes published after the given id.
+     */
+    public synchronized List<Change> since(long id) {
+        final List<Change> changes = new ArrayList<>();
+        for (Change change : recent) {
+            if (change.getId() > id) {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+}
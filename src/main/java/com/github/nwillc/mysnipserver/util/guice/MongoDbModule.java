@@ -19,10 +19,10 @@ package com.github.nwillc.mysnipserver.util.guice;
 
 import com.github.nwillc.mysnipserver.MySnipServerApplication;
 import com.github.nwillc.mysnipserver.dao.mongodb.MongoDbDao;
+import com.github.nwillc.mysnipserver.dao.mongodb.MongoSearch;
 import com.github.nwillc.mysnipserver.entity.Category;
 import com.github.nwillc.mysnipserver.entity.Snippet;
 import com.github.nwillc.mysnipserver.entity.User;
-import com.github.nwillc.opa.caching.CachingDao;
 import com.google.inject.AbstractModule;
 import com.google.inject.TypeLiteral;
 import com.mongodb.MongoClient;
@@ -38,6 +38,7 @@ public class MongoDbModule extends AbstractModule {
     private static final String MONGO_DB_PORT = System.getenv("MONGO_DB_PORT");
     private static final String MONGO_DB_USER = System.getenv("MONGO_DB_USER");
     private static final String MONGO_DB_PASSWORD = System.getenv("MONGO_DB_PASSWORD");
+    private static final String MONGO_DB_SEARCH = System.getenv("MONGO_DB_SEARCH");
 
     @Override
     protected void configure() {
@@ -54,10 +55,12 @@ public class MongoDbModule extends AbstractModule {
         Logger.info("Find: " + userDao.findOne(user.getKey()).orElse(null));
         userDao.delete(user.getKey());
         Logger.info("Find: " + userDao.findOne(user.getKey()).orElse(null));
+        MongoSearch search = MongoSearch.of(MONGO_DB_SEARCH);
+        Logger.info("Search: " + search);
         bind(new TypeLiteral<MySnipServerApplication>() {
         }).toInstance(new MySnipServerApplication(
                 new MongoDbDao<>(client, Category.class),
-                new CachingDao<>(new MongoDbDao<>(client, Snippet.class)),
+                new MongoDbDao<>(client, Snippet.class, search),
                 userDao));
     }
 }
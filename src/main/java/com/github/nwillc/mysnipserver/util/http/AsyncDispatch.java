@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.http;
+
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.util.Callback;
+import spark.Request;
+
+import javax.servlet.AsyncContext;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers a route with a result worked out elsewhere, without holding the request thread meanwhile. The
+ * request goes asynchronous while the result is pending, and is then dispatched back to its route, which
+ * finds the result and answers with it like any other request, choosing the status and headers.
+ * <p>
+ * Spark writes and flushes whatever a route returns, which would commit a 200 before the result is known,
+ * so the empty flush it makes when the route first returns is dropped.
+ */
+public final class AsyncDispatch {
+    private static final String RESULT = AsyncDispatch.class.getName() + ".result";
+
+    private AsyncDispatch() {
+    }
+
+    /**
+     * The completed result when the request has been dispatched back to its route, otherwise empty.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Optional<CompletableFuture<T>> dispatched(Request request) {
+        return Optional.ofNullable((CompletableFuture<T>) request.raw().getAttribute(RESULT));
+    }
+
+    /**
+     * Dispatch the request back to its route once the result completes, successfully or not.
+     *
+     * @return the body for the route to return meanwhile
+     */
+    public static Object later(Request request, CompletableFuture<?> result) {
+        holdHeaders(request);
+        final AsyncContext context = request.raw().startAsync();
+        // The result always dispatches the request, whether it succeeded or not
+        context.setTimeout(0);
+        result.whenComplete((value, failure) -> {
+            context.getRequest().setAttribute(RESULT, result);
+            context.dispatch();
+        });
+        return "";
+    }
+
+    private static void holdHeaders(Request request) {
+        final org.eclipse.jetty.server.Request base = org.eclipse.jetty.server.Request.getBaseRequest(request.raw());
+        if (base != null) {
+            final HttpOutput output = base.getResponse().getHttpOutput();
+            output.setInterceptor(new DropEmptyFlush(output.getInterceptor()));
+        }
+    }
+
+    /**
+     * Passes on everything written but a flush with nothing to send, so only content or completing the
+     * response commits it.
+     */
+    private static final class DropEmptyFlush implements HttpOutput.Interceptor {
+        private final HttpOutput.Interceptor next;
+
+        DropEmptyFlush(HttpOutput.Interceptor next) {
+            this.next = next;
+        }
+
+        @Override
+        public void write(ByteBuffer content, boolean complete, Callback callback) {
+            if (complete || content.hasRemaining()) {
+                next.write(content, complete, callback);
+            } else {
+                callback.succeeded();
+            }
+        }
+
+        @Override
+        public HttpOutput.Interceptor getNextInterceptor() {
+            return next;
+        }
+
+        @Override
+        public boolean isOptimizedForDirectBuffers() {
+            return next.isOptimizedForDirectBuffers();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Holds back what is written until it reaches a minimum size, then compresses it and everything after
+ * into the target. Smaller content is written to the target as it is on close. Closing leaves the target
+ * open, flushed.
+ */
+public class CompressingOutputStream extends OutputStream {
+    private final OutputStream target;
+    private final int minBytes;
+    private final Compressor compressor;
+    private final Runnable beforeCompressing;
+    private ByteArrayOutputStream pending;
+    private OutputStream compressed;
+    private boolean closed;
+
+    public CompressingOutputStream(OutputStream target, int minBytes, Compressor compressor,
+                                   Runnable beforeCompressing) {
+        this.target = target;
+        this.minBytes = minBytes;
+        this.compressor = compressor;
+        this.beforeCompressing = beforeCompressing;
+        pending = new ByteArrayOutputStream(Math.min(minBytes, 8192));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (compressed == null) {
+            if (pending.size() + len < minBytes) {
+                pending.write(b, off, len);
+                return;
+            }
+            beforeCompressing.run();
+            compressed = compressor.wrap(new Unclosed(target));
+            pending.writeTo(compressed);
+            pending = null;
+        }
+        compressed.write(b, off, len);
+    }
+
+    public boolean isCompressing() {
+        return compressed != null;
+    }
+
+    /**
+     * Flushing before the minimum is reached has nothing to send, the decision to compress is not made yet.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (compressed != null) {
+            compressed.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (compressed == null) {
+            pending.writeTo(target);
+            pending = null;
+        } else {
+            compressed.close();
+        }
+        target.flush();
+    }
+
+    /**
+     * Creates the compressing stream around the target.
+     */
+    @FunctionalInterface
+    public interface Compressor {
+        OutputStream wrap(OutputStream target) throws IOException;
+    }
+
+    private static final class Unclosed extends OutputStream {
+        private final OutputStream target;
+
+        private Unclosed(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target.flush();
+        }
+    }
+}
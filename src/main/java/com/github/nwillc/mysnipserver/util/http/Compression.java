@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.http;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * When and how hard to gzip responses: bodies smaller than the minimum size go out as they are, larger
+ * ones are compressed at the level given, for clients that accept gzip. Parsed from specifications such
+ * as "1024:6", a level of 0 turns compression off.
+ */
+public final class Compression {
+    public static final Compression DEFAULT = new Compression(1024, 6);
+    public static final String GZIP = "gzip";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String VARY = "Vary";
+    private final int minBytes;
+    private final int level;
+
+    public Compression(int minBytes, int level) {
+        if (minBytes < 0 || level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression needs a non negative size and a level of 0 to 9: "
+                    + minBytes + ':' + level);
+        }
+        this.minBytes = minBytes;
+        this.level = level;
+    }
+
+    /**
+     * Parse minBytes[:level], taking an omitted level from the default.
+     */
+    public static Compression parse(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            return DEFAULT;
+        }
+        final String[] parts = spec.trim().split(":");
+        if (parts.length > 2) {
+            throw new IllegalArgumentException("Bad compression: " + spec);
+        }
+        try {
+            return new Compression(Integer.parseInt(parts[0]),
+                    parts.length > 1 ? Integer.parseInt(parts[1]) : DEFAULT.level);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad compression: " + spec, e);
+        }
+    }
+
+    /**
+     * Does the request's Accept-Encoding allow gzip, either by name or by wildcard, with a non zero quality.
+     */
+    public boolean accepts(HttpServletRequest request) {
+        if (!isEnabled()) {
+            return false;
+        }
+        for (String header : Collections.list(request.getHeaders(ACCEPT_ENCODING))) {
+            for (String coding : header.split(",")) {
+                final String[] parameters = coding.split(";");
+                final String name = parameters[0].trim().toLowerCase(Locale.ENGLISH);
+                if (name.equals(GZIP) || name.equals("x-gzip") || name.equals("*")) {
+                    return quality(parameters) > 0;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            final String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * A stream gzipping what is written to the target once it reaches the minimum size, calling back before
+     * the first compressed byte so the Content-Encoding header can still be set.
+     */
+    public OutputStream wrap(OutputStream target, Runnable beforeCompressing) {
+        return new CompressingOutputStream(target, minBytes, this::gzip, beforeCompressing);
+    }
+
+    /**
+     * The gzipped bytes, or null when they are below the minimum size or would not be any smaller.
+     */
+    public byte[] compress(byte[] bytes) {
+        if (!isEnabled() || bytes.length < minBytes) {
+            return null;
+        }
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 2);
+        try (OutputStream out = gzip(compressed)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.size() < bytes.length ? compressed.toByteArray() : null;
+    }
+
+    /**
+     * A stream gzipping everything written to the target, whatever its size.
+     */
+    public OutputStream gzip(OutputStream target) throws IOException {
+        return new GZIPOutputStream(target, true) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return level > Deflater.NO_COMPRESSION;
+    }
+
+    public int getMinBytes() {
+        return minBytes;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public String toString() {
+        return minBytes + ":" + level;
+    }
+}
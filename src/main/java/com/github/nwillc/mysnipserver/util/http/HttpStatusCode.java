@@ -25,7 +25,10 @@ public enum HttpStatusCode {
     UNAUTHORIZED(HTTP_UNAUTHORIZED),
     NOT_FOUND(HTTP_NOT_FOUND),
     INTERNAL_SERVER_ERROR(HTTP_INTERNAL_ERROR),
-    BAD_REQUEST(HTTP_BAD_REQUEST);
+    BAD_REQUEST(HTTP_BAD_REQUEST),
+    METHOD_NOT_ALLOWED(HTTP_BAD_METHOD),
+    PAYLOAD_TOO_LARGE(HTTP_ENTITY_TOO_LARGE),
+    SERVICE_UNAVAILABLE(HTTP_UNAVAILABLE);
 
     public final int code;
 
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counts and total durations of a timed step. Named instances are registered so that they can all be
+ * reported together.
+ */
+public final class TimingStats {
+    private static final Map<String, TimingStats> REGISTRY = new ConcurrentSkipListMap<>();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * The registered timings with the given name, created on first use.
+     */
+    public static TimingStats named(String name) {
+        return REGISTRY.computeIfAbsent(name, n -> new TimingStats());
+    }
+
+    /**
+     * A snapshot of every registered timing.
+     */
+    public static Map<String, Map<String, Object>> all() {
+        final Map<String, Map<String, Object>> all = new LinkedHashMap<>();
+        REGISTRY.forEach((name, stats) -> all.put(name, stats.toMap()));
+        return Collections.unmodifiableMap(all);
+    }
+
+    /**
+     * Run a step, recording how long it took.
+     */
+    public <T> T time(Supplier<T> step) {
+        final long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanMicros() {
+        final long n = getCount();
+        return n == 0 ? 0.0 : (double) getTotalNanos() / n / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    public Map<String, Object> toMap() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", getCount());
+        map.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(getTotalNanos()));
+        map.put("meanMicros", getMeanMicros());
+        map.put("maxMicros", TimeUnit.NANOSECONDS.toMicros(getMaxNanos()));
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "TimingStats" + toMap();
+    }
+}
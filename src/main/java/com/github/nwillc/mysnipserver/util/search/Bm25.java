@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * BM25F style relevance scoring of a match over boosted text fields. Every candidate scored for a match
+ * already contains it, so the inverse document frequency is the same for all of them and is left out;
+ * field lengths are normalized against a typical length declared for each field.
+ */
+public class Bm25<T> {
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+    private final List<WeightedField<T>> fields = new ArrayList<>();
+
+    public Bm25<T> field(Function<T, String> text, double boost, double averageLength) {
+        fields.add(new WeightedField<>(text, boost, averageLength));
+        return this;
+    }
+
+    public double score(T entity, String match) {
+        final String lowerMatch = match.toLowerCase(Locale.ROOT);
+        double score = 0.0;
+        for (WeightedField<T> field : fields) {
+            final String text = field.text.apply(entity);
+            if (text == null) {
+                continue;
+            }
+            final int frequency = occurrences(text.toLowerCase(Locale.ROOT), lowerMatch);
+            if (frequency == 0) {
+                continue;
+            }
+            final double norm = K1 * (1 - B + B * length(text) / field.averageLength);
+            score += field.boost * frequency * (K1 + 1) / (frequency + norm);
+        }
+        return score;
+    }
+
+    static int occurrences(String text, String match) {
+        if (match.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = text.indexOf(match); i >= 0; i = text.indexOf(match, i + match.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    static int length(String text) {
+        int terms = 0;
+        boolean inTerm = false;
+        for (int i = 0; i < text.length(); i++) {
+            final boolean termChar = Character.isLetterOrDigit(text.charAt(i));
+            if (termChar && !inTerm) {
+                terms++;
+            }
+            inTerm = termChar;
+        }
+        return Math.max(terms, 1);
+    }
+
+    private static final class WeightedField<T> {
+        private final Function<T, String> text;
+        private final double boost;
+        private final double averageLength;
+
+        private WeightedField(Function<T, String> text, double boost, double averageLength) {
+            this.text = text;
+            this.boost = boost;
+            this.averageLength = averageLength;
+        }
+    }
+}
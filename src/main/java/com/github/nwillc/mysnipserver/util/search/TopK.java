@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the k highest scoring elements offered to it in a bounded min-heap, so memory use is O(k)
+ * however many elements are streamed through it.
+ */
+public class TopK<T> {
+    private final int k;
+    private final PriorityQueue<Scored<T>> heap;
+
+    public TopK(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+        heap = new PriorityQueue<>(k + 1, Comparator.comparingDouble(s -> s.score));
+    }
+
+    public void offer(T element, double score) {
+        if (heap.size() < k) {
+            heap.add(new Scored<>(element, score));
+        } else if (score > heap.peek().score) {
+            heap.poll();
+            heap.add(new Scored<>(element, score));
+        }
+    }
+
+    /**
+     * The retained elements, highest score first.
+     */
+    public List<T> toList() {
+        final List<Scored<T>> scored = new ArrayList<>(heap);
+        scored.sort(Comparator.comparingDouble((Scored<T> s) -> s.score).reversed());
+        final List<T> list = new ArrayList<>(scored.size());
+        for (Scored<T> s : scored) {
+            list.add(s.element);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private static final class Scored<T> {
+        private final T element;
+        private final double score;
+
+        private Scored(T element, double score) {
+            this.element = element;
+            this.score = score;
+        }
+    }
+}
@@ -264,6 +264,34 @@ define(["gapi", "jquery-ui", "jquery", "graphql"], function (gapi, ui, $, graphq
                 $(_this.fileImportDialog).dialog("close");
             };
 
+            this.applyChange = function (change) {
+                console.log("Change: " + JSON.stringify(change));
+                if (change.entity == "category") {
+                    _this.loadCategories();
+                    return;
+                }
+                var option = $("option", _this.titles).filter(function () {
+                    return this.value == change.key;
+                });
+                if (change.operation == "DELETE" || change.fields.category != $(_this.categories).val()) {
+                    option.remove();
+                } else if (option.length) {
+                    option.text(change.fields.title);
+                } else {
+                    _this.titles.append($("<option></option>").attr("value", change.key).text(change.fields.title));
+                }
+            };
+
+            this.listenForChanges = function () {
+                if (!window.EventSource) {
+                    return;
+                }
+                var changes = new EventSource("v1/changes");
+                changes.addEventListener("change", function (event) {
+                    _this.applyChange(JSON.parse(event.data));
+                });
+            };
+
             this.openSearch = function () {
                 $(_this.searchDialog).dialog("open");
             };
@@ -300,6 +328,7 @@ define(["gapi", "jquery-ui", "jquery", "graphql"], function (gapi, ui, $, graphq
 
             // GO!
             this.loadCategories();
+            this.listenForChanges();
             $("#page").show();
             $("#loading").hide();
         }
@@ -27,16 +27,37 @@ define(['jquery'], function ($) {
                 return JSON.stringify(_this);
             };
 
-            this.execute = function (consumer) {
-                console.log("GraphQL Request: " + _this);
+            var isMutation = /^\s*mutation\b/.test(query);
+
+            this.sha256 = function (text, consumer) {
+                var subtle = window.crypto && window.crypto.subtle;
+                if (!subtle || !window.TextEncoder) {
+                    consumer(undefined);
+                    return;
+                }
+                subtle.digest("SHA-256", new TextEncoder().encode(text)).then(function (digest) {
+                    consumer(Array.prototype.map.call(new Uint8Array(digest), function (b) {
+                        return ("0" + b.toString(16)).slice(-2);
+                    }).join(""));
+                }, function () {
+                    consumer(undefined);
+                });
+            };
+
+            this.send = function (method, data, consumer, retry) {
                 $.ajax({
                     url: _this.url,
                     async: true,
-                    method: "POST",
+                    method: method,
                     contentType: "application/json",
-                    data: _this.toString(),
+                    data: data,
                     dataType: "json",
                     success: function (response) {
+                        if (retry && response.errors != undefined && response.errors.length == 1 &&
+                            response.errors[0].message == "PersistedQueryNotFound") {
+                            retry();
+                            return;
+                        }
                         if (response.errors != undefined) {
                             console.log("GraphQL Errors: " + JSON.stringify(response.errors));
                         }
@@ -48,6 +69,33 @@ define(['jquery'], function ($) {
                     }
                 });
             };
+
+            this.execute = function (consumer) {
+                console.log("GraphQL Request: " + _this);
+                _this.sha256(_this.query, function (hash) {
+                    if (hash == undefined) {
+                        _this.send("POST", _this.toString(), consumer);
+                        return;
+                    }
+                    var extensions = {persistedQuery: {version: 1, sha256Hash: hash}};
+                    var full = function () {
+                        _this.send("POST", JSON.stringify({
+                            query: _this.query,
+                            variables: _this.variables,
+                            extensions: extensions
+                        }), consumer);
+                    };
+                    if (isMutation) {
+                        _this.send("POST", JSON.stringify({variables: _this.variables, extensions: extensions}),
+                            consumer, full);
+                    } else {
+                        _this.send("GET", {
+                            variables: JSON.stringify(_this.variables),
+                            extensions: JSON.stringify(extensions)
+                        }, consumer, full);
+                    }
+                });
+            };
         }
     }
 });
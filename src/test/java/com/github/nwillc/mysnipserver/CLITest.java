@@ -22,7 +22,7 @@ import org.junit.Test;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class CLITest {
-	private final String[] expected = {"address", "help", "port", "store", "noauth"};
+	private final String[] expected = {"address", "body", "cache", "gzip", "help", "limits", "port", "store", "noauth", "virtual", "workers"};
 
 	@Test
 	public void testOptionCount() throws Exception {
@@ -33,4 +33,10 @@ public class CommandLineInterfaceTest extends UtilityClassContract {
 		assertThat(CommandLineInterface.getOptions()).isNotNull();
 		assertThat(CommandLineInterface.getOptions().getOptions()).hasSize(CommandLineInterface.CLI.values().length);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testBodyIsLong() throws Exception {
+		assertThat(CommandLineInterface.getOptions().getOption(CommandLineInterface.CLI.body.name()).getType())
+				.isEqualTo(Long.class);
+	}
+}
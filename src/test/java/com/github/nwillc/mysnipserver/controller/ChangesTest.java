@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller;
+
+import com.github.nwillc.mysnipserver.util.events.Change;
+import com.github.nwillc.mysnipserver.util.events.ChangeFeed;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static com.github.nwillc.mysnipserver.util.rest.Version.versionedPath;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangesTest {
+    private static final String PATH = versionedPath(Changes.CHANGES_PATH);
+    private static ChangeFeed feed;
+    private static Changes changes;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestServer.start();
+        feed = new ChangeFeed(1000);
+        changes = new Changes(feed);
+    }
+
+    @Test
+    public void testConcurrentChangesSentInOrder() throws Exception {
+        awaitSubscribers(0);
+        final HttpURLConnection connection = TestServer.open("GET", PATH, null);
+        try (BufferedReader events = reader(connection)) {
+            awaitSubscribers(1);
+            final ExecutorService publishers = Executors.newFixedThreadPool(4);
+            for (int i = 0; i < 200; i++) {
+                final String key = "k" + i;
+                publishers.execute(() -> feed.publish(Change.deleted("snippet", key)));
+            }
+            publishers.shutdown();
+            assertThat(publishers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+            final List<Long> ids = ids(events, 200);
+            for (int i = 1; i < ids.size(); i++) {
+                assertThat(ids.get(i)).isEqualTo(ids.get(i - 1) + 1);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testReplaysFromLastEventId() throws Exception {
+        awaitSubscribers(0);
+        for (String key : new String[]{"a", "b", "c"}) {
+            feed.publish(Change.deleted("snippet", key));
+        }
+        final List<Change> retained = feed.since(0);
+        final long last = retained.get(retained.size() - 1).getId();
+        final HttpURLConnection connection = TestServer.open("GET", PATH,
+                Collections.singletonMap("Last-Event-ID", Long.toString(last - 2)));
+        try (BufferedReader events = reader(connection)) {
+            awaitSubscribers(1);
+            feed.publish(Change.deleted("snippet", "d"));
+            assertThat(ids(events, 3)).containsExactly(last - 1, last, last + 1);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testSlowSubscriberDropped() throws Exception {
+        awaitSubscribers(0);
+        final char[] body = new char[64 * 1024];
+        Arrays.fill(body, 'x');
+        final Change large = new Change(Change.Operation.SAVE, "snippet", "big",
+                Collections.singletonMap("body", new String(body)));
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(1024);
+            socket.connect(new InetSocketAddress("localhost", TestServer.port()));
+            final OutputStream out = socket.getOutputStream();
+            out.write(("GET " + PATH + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            awaitSubscribers(1);
+            // Never read, so the connection backs up and its pending events pass the limit
+            for (int i = 0; i < 2000 && changes.getSubscriberCount() > 0; i++) {
+                feed.publish(large);
+            }
+            assertThat(changes.getSubscriberCount()).isEqualTo(0);
+        }
+    }
+
+    private static BufferedReader reader(HttpURLConnection connection) throws Exception {
+        connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(10));
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getContentType()).startsWith("text/event-stream");
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static List<Long> ids(BufferedReader events, int count) throws Exception {
+        final List<Long> ids = new ArrayList<>();
+        while (ids.size() < count) {
+            final String line = events.readLine();
+            assertThat(line).as("event stream ended").isNotNull();
+            if (line.startsWith("id: ")) {
+                ids.add(Long.parseLong(line.substring(4)));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Wait for the connections to settle at a count, publishing so that closed ones are noticed.
+     */
+    private static void awaitSubscribers(int count) throws Exception {
+        final BooleanSupplier settled = () -> changes.getSubscriberCount() == count;
+        for (int i = 0; i < 100 && !settled.getAsBoolean(); i++) {
+            if (changes.getSubscriberCount() > count) {
+                feed.publish(Change.deleted("snippet", "ping"));
+            }
+            Thread.sleep(50);
+        }
+        assertThat(changes.getSubscriberCount()).isEqualTo(count);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nwillc.mysnipserver.controller.graphql.QueryLimits;
+import com.github.nwillc.mysnipserver.dao.memory.CategoryDao;
+import com.github.nwillc.mysnipserver.dao.memory.SnippetDao;
+import com.github.nwillc.mysnipserver.entity.Category;
+import com.github.nwillc.mysnipserver.util.concurrent.BoundedExecutor;
+import com.github.nwillc.mysnipserver.util.events.ChangeFeed;
+import com.github.nwillc.mysnipserver.util.http.Compression;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static com.github.nwillc.mysnipserver.util.rest.Version.versionedPath;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GraphqlTest {
+    private static final String PATH = versionedPath(Graphql.GRAPHQL_PATH);
+    private static final String CATEGORIES = "{ categories { name } }";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static CategoryDao categoryDao;
+    private static BoundedExecutor workers;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestServer.start();
+        categoryDao = new CategoryDao();
+        workers = new BoundedExecutor("graphql.test", 2, 2);
+        new Graphql(categoryDao, new SnippetDao(categoryDao), QueryLimits.DEFAULT, Graphql.DEFAULT_MAX_BODY_KB,
+                new ChangeFeed(10), workers, Compression.DEFAULT);
+    }
+
+    @Test
+    public void testGetTagged() throws Exception {
+        final TestServer.Reply reply = TestServer.get(query(CATEGORIES), null);
+        assertThat(reply.status).isEqualTo(200);
+        assertThat(reply.body).contains("Shell Script");
+        assertThat(reply.header("Cache-Control")).isEqualTo("private, no-cache");
+        final String etag = reply.header("ETag");
+        assertThat(etag).startsWith("W/\"");
+
+        final TestServer.Reply again =
+                TestServer.get(query(CATEGORIES), Collections.singletonMap("If-None-Match", etag));
+        assertThat(again.status).isEqualTo(304);
+        assertThat(again.body).isEmpty();
+
+        final TestServer.Reply other =
+                TestServer.get(query("{ categories { key } }"), Collections.singletonMap("If-None-Match", etag));
+        assertThat(other.status).isEqualTo(200);
+        assertThat(other.header("ETag")).isNotEqualTo(etag);
+    }
+
+    @Test
+    public void testChangeRetagged() throws Exception {
+        final String etag = TestServer.get(query(CATEGORIES), null).header("ETag");
+        final TestServer.Reply saved = TestServer.post(PATH,
+                "{\"query\": \"mutation { category(name: \\\"Retagged\\\") { key } }\"}");
+        assertThat(saved.status).isEqualTo(200);
+        assertThat(saved.body).contains("key");
+
+        final TestServer.Reply changed =
+                TestServer.get(query(CATEGORIES), Collections.singletonMap("If-None-Match", etag));
+        assertThat(changed.status).isEqualTo(200);
+        assertThat(changed.body).contains("Retagged");
+        assertThat(changed.header("ETag")).isNotEqualTo(etag);
+    }
+
+    @Test
+    public void testOutsideChangeRetagged() throws Exception {
+        final String etag = TestServer.get(query(CATEGORIES), null).header("ETag");
+        // Saved straight to the store, as another instance would, so nothing is published to the change feed
+        categoryDao.save(new Category("Outside"));
+
+        final TestServer.Reply changed =
+                TestServer.get(query(CATEGORIES), Collections.singletonMap("If-None-Match", etag));
+        assertThat(changed.status).isEqualTo(200);
+        assertThat(changed.body).contains("Outside");
+        assertThat(changed.header("ETag")).isNotEqualTo(etag);
+    }
+
+    @Test
+    public void testGzipped() throws Exception {
+        final HttpURLConnection connection =
+                TestServer.open("POST", PATH, Collections.singletonMap("Accept-Encoding", "gzip"));
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(("{\"query\": \"" + CATEGORIES + "\"}").getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getHeaderField("Content-Encoding")).isEqualTo("gzip");
+        try (Scanner scanner = new Scanner(new GZIPInputStream(connection.getInputStream()), "UTF-8")) {
+            assertThat(scanner.useDelimiter("\\A").next()).contains("Shell Script");
+        }
+        connection.disconnect();
+    }
+
+    @Test
+    public void testBusyShed() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<CompletableFuture<Boolean>> blocking = workers.submitAll(Collections.nCopies(4, () -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }));
+        try {
+            final TestServer.Reply shed = TestServer.post(PATH, "{\"query\": \"" + CATEGORIES + "\"}");
+            assertThat(shed.status).isEqualTo(503);
+            assertThat(shed.header("Retry-After")).isEqualTo("1");
+            assertThat(TestServer.get(query("{ categories { key } }"), null).status).isEqualTo(503);
+        } finally {
+            release.countDown();
+        }
+        blocking.forEach(CompletableFuture::join);
+        assertThat(TestServer.post(PATH, "{\"query\": \"" + CATEGORIES + "\"}").status).isEqualTo(200);
+    }
+
+    @Test
+    public void testBatchInOrder() throws Exception {
+        final List<Map<String, Object>> results = batch(
+                "{ category(key: \"none\") { name } }",
+                CATEGORIES,
+                "{ snippets { title } }");
+        assertThat(results).hasSize(3);
+        assertThat(data(results.get(0))).containsEntry("category", null);
+        assertThat(data(results.get(1))).containsKey("categories");
+        assertThat(data(results.get(2))).containsKey("snippets");
+    }
+
+    @Test
+    public void testBatchErrorsInOwnResult() throws Exception {
+        final List<Map<String, Object>> results = batch(
+                CATEGORIES,
+                "{ nothing }",
+                "{ categories(first: 5000) { key name } }");
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0)).doesNotContainKey("errors");
+        assertThat(data(results.get(0))).containsKey("categories");
+        assertThat(results.get(1)).containsKey("errors");
+        assertThat(results.get(2).get("errors").toString()).contains("exceeds the limit");
+    }
+
+    @Test
+    public void testBatchLimits() throws Exception {
+        final String[] tooMany = new String[QueryLimits.DEFAULT.getMaxBatch() + 1];
+        Arrays.fill(tooMany, CATEGORIES);
+        final TestServer.Reply many = TestServer.post(PATH, operations(tooMany));
+        assertThat(many.status).isEqualTo(400);
+        assertThat(many.body).contains("operations exceeds the limit");
+
+        // Each is within the cost limit, together they are not
+        final String costly = "{ categories(first: 2000) { key name } }";
+        assertThat(batch(costly)).hasSize(1);
+        final TestServer.Reply summed = TestServer.post(PATH, operations(costly, costly));
+        assertThat(summed.status).isEqualTo(400);
+        assertThat(summed.body).contains("Batch cost 8002 exceeds the limit");
+    }
+
+    @Test
+    public void testBatchMutationsInOrder() throws Exception {
+        final List<Map<String, Object>> results = batch(
+                "mutation { category(key: \"ordered\", name: \"First\") { key } }",
+                "{ category(key: \"ordered\") { name } }",
+                "mutation { category(key: \"ordered\", name: \"Second\") { key } }",
+                "{ category(key: \"ordered\") { name } }");
+        assertThat(results).hasSize(4);
+        assertThat(data(results.get(1)).get("category")).isEqualTo(Collections.singletonMap("name", "First"));
+        assertThat(data(results.get(3)).get("category")).isEqualTo(Collections.singletonMap("name", "Second"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> batch(String... queries) throws Exception {
+        final TestServer.Reply reply = TestServer.post(PATH, operations(queries));
+        assertThat(reply.status).isEqualTo(200);
+        return MAPPER.readValue(reply.body, List.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> data(Map<String, Object> result) {
+        return (Map<String, Object>) result.get("data");
+    }
+
+    private static String operations(String... queries) throws Exception {
+        final List<Map<String, String>> operations = new ArrayList<>();
+        for (String query : queries) {
+            operations.add(Collections.singletonMap("query", query));
+        }
+        return MAPPER.writeValueAsString(operations);
+    }
+
+    private static String query(String query) throws Exception {
+        return PATH + "?query=" + URLEncoder.encode(query, "UTF-8");
+    }
+}
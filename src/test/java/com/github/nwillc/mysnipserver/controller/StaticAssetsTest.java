@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller;
+
+import com.github.nwillc.mysnipserver.util.http.Compression;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StaticAssetsTest {
+
+    @Test
+    public void testLoad() throws Exception {
+        final Map<String, StaticAssets.Asset> assets = StaticAssets.load("/public", Compression.DEFAULT);
+        assertThat(assets).containsKeys("/index.html", "/login.html", "/scripts/app.js", "/favicon.ico");
+        final StaticAssets.Asset app = assets.get("/scripts/app.js");
+        assertThat(app.getType()).isEqualTo("application/javascript");
+        assertThat(app.getGzipped()).isNotNull();
+        assertThat(app.getGzipped().length).isLessThan(app.getBytes().length);
+        assertThat(assets.get("/index.html").getType()).startsWith("text/html");
+    }
+
+    @Test
+    public void testNotCompressed() throws Exception {
+        final Map<String, StaticAssets.Asset> assets = StaticAssets.load("/public", new Compression(0, 0));
+        assertThat(assets.values()).allMatch(asset -> asset.getGzipped() == null);
+    }
+
+    @Test
+    public void testMissing() throws Exception {
+        assertThat(StaticAssets.load("/missing", Compression.DEFAULT)).isEmpty();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller;
+
+import com.github.nwillc.mysnipserver.util.http.HttpException;
+import spark.Spark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The embedded Spark server for controller tests, started once per JVM on a free port. Spark serves one
+ * set of routes per JVM, so each test class should create its controllers once, before its tests.
+ */
+public final class TestServer {
+    private static int port;
+
+    private TestServer() {
+    }
+
+    public static synchronized void start() throws IOException {
+        if (port != 0) {
+            return;
+        }
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Spark.port(port);
+        Spark.exception(HttpException.class, (e, request, response) -> {
+            response.status(((HttpException) e).getCode().code);
+            response.body(((HttpException) e).getCode() + ": " + e.getMessage());
+        });
+    }
+
+    public static int port() {
+        return port;
+    }
+
+    public static Reply get(String path, Map<String, String> headers) throws IOException {
+        return request("GET", path, headers, null);
+    }
+
+    public static Reply post(String path, String body) throws IOException {
+        return request("POST", path, null, body);
+    }
+
+    public static HttpURLConnection open(String method, String path, Map<String, String> headers) throws IOException {
+        Spark.awaitInitialization();
+        final HttpURLConnection connection =
+                (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setRequestMethod(method);
+        if (headers != null) {
+            headers.forEach(connection::setRequestProperty);
+        }
+        return connection;
+    }
+
+    private static Reply request(String method, String path, Map<String, String> headers, String body)
+            throws IOException {
+        final HttpURLConnection connection = open(method, path, headers);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        final int status = connection.getResponseCode();
+        final InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                final byte[] buffer = new byte[4096];
+                for (int read = stream.read(buffer); read >= 0; read = stream.read(buffer)) {
+                    bytes.write(buffer, 0, read);
+                }
+            }
+        }
+        final Reply reply = new Reply(status, connection.getHeaderFields(),
+                new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        connection.disconnect();
+        return reply;
+    }
+
+    public static final class Reply {
+        public final int status;
+        public final String body;
+        private final Map<String, List<String>> headers;
+
+        private Reply(int status, Map<String, List<String>> headers, String body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public String header(String name) {
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (name.equalsIgnoreCase(header.getKey())) {
+                    return header.getValue().get(0);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller.graphql;
+
+import com.github.nwillc.mysnipserver.controller.DaoProvider;
+import com.github.nwillc.mysnipserver.controller.graphql.schema.SnippetSchema;
+import com.github.nwillc.mysnipserver.dao.memory.CategoryDao;
+import com.github.nwillc.mysnipserver.dao.memory.SnippetDao;
+import com.github.nwillc.mysnipserver.entity.Category;
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.github.nwillc.mysnipserver.util.cache.CacheStats;
+import com.github.nwillc.mysnipserver.util.metrics.TimingStats;
+import com.github.nwillc.opa.Dao;
+import graphql.ErrorType;
+import graphql.ExecutionResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DocumentCacheTest implements DaoProvider {
+	private static final String QUERY = "{ categories { key name } }";
+	private CategoryDao categoryDao;
+	private SnippetDao snippetDao;
+	private DocumentCache documents;
+
+	@Before
+	public void setUp() throws Exception {
+		categoryDao = new CategoryDao();
+		snippetDao = new SnippetDao(categoryDao);
+		documents = new DocumentCache(new SnippetSchema().getSchema(), 10_000);
+	}
+
+	@Override
+	public Dao<String, Category> getCategoryDao() {
+		return categoryDao;
+	}
+
+	@Override
+	public Dao<String, Snippet> getSnippetDao() {
+		return snippetDao;
+	}
+
+	@Test
+	public void testRepeatSkipsParsing() throws Exception {
+		final CacheStats stats = CacheStats.named("graphql.documents");
+		final TimingStats parse = TimingStats.named("graphql.parse");
+		final TimingStats validate = TimingStats.named("graphql.validate");
+		final long hits = stats.getHits();
+		final long parsed = parse.getCount();
+		final long validated = validate.getCount();
+
+		final DocumentCache.Prepared first = documents.prepare(QUERY);
+		final DocumentCache.Prepared second = documents.prepare(QUERY);
+		assertThat(first.isValid()).isTrue();
+		assertThat(second.getDocument()).isSameAs(first.getDocument());
+		assertThat(stats.getHits()).isEqualTo(hits + 1);
+		assertThat(parse.getCount()).isEqualTo(parsed + 1);
+		assertThat(validate.getCount()).isEqualTo(validated + 1);
+	}
+
+	@Test
+	public void testWeighedByLength() throws Exception {
+		final TimingStats parse = TimingStats.named("graphql.parse");
+		final DocumentCache small = new DocumentCache(new SnippetSchema().getSchema(), QUERY.length());
+		final long parsed = parse.getCount();
+		small.prepare(QUERY);
+		small.prepare(QUERY);
+		assertThat(parse.getCount()).isEqualTo(parsed + 1);
+		final String longer = QUERY + ' ';
+		small.prepare(longer);
+		small.prepare(longer);
+		assertThat(parse.getCount()).isEqualTo(parsed + 3);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testExecute() throws Exception {
+		final ExecutionResult result = documents.execute(QUERY, null, this, null);
+		assertThat(result.getErrors()).isEmpty();
+		assertThat(((Map<String, Object>) result.getData()).get("categories")).isNotNull();
+	}
+
+	@Test
+	public void testSyntaxError() throws Exception {
+		final DocumentCache.Prepared prepared = documents.prepare("{ categories { key ");
+		assertThat(prepared.isValid()).isFalse();
+		assertThat(prepared.getErrors()).hasSize(1);
+		assertThat(prepared.getErrors().get(0).getErrorType()).isEqualTo(ErrorType.InvalidSyntax);
+	}
+
+	@Test
+	public void testValidationErrorNotCached() throws Exception {
+		final DocumentCache.Prepared prepared = documents.prepare("{ categories { nope } }");
+		assertThat(prepared.isValid()).isFalse();
+		assertThat(prepared.getErrors().get(0).getErrorType()).isEqualTo(ErrorType.ValidationError);
+		assertThat(documents.prepare("{ categories { nope } }").isValid()).isFalse();
+		assertThat(documents.execute("{ categories { nope } }", null, this, null).getErrors()).isNotEmpty();
+	}
+}
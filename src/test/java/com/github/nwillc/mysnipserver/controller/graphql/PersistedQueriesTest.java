@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller.graphql;
+
+import com.github.nwillc.mysnipserver.controller.graphql.schema.SnippetSchema;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistedQueriesTest {
+	private static final String QUERY = "{ categories { key name }}";
+	private PersistedQueries persistedQueries;
+
+	@Before
+	public void setUp() throws Exception {
+		persistedQueries = new PersistedQueries(1000);
+	}
+
+	@Test
+	public void testSha256() throws Exception {
+		assertThat(PersistedQueries.sha256("")).isEqualTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+	}
+
+	@Test
+	public void testSeedFromScript() throws Exception {
+		assertThat(persistedQueries.seedFromScript("/public/scripts/app.js")).isGreaterThan(0);
+		assertThat(persistedQueries.find(PersistedQueries.sha256(QUERY))).contains(QUERY);
+	}
+
+	@Test
+	public void testSeededQueriesValid() throws Exception {
+		final DocumentCache documents = new DocumentCache(new SnippetSchema().getSchema(), 10_000);
+		persistedQueries.seedFromScript("/public/scripts/app.js");
+		final String hash = PersistedQueries.sha256("mutation($snippet: String!) { deleteSnippet ( key: $snippet ) }");
+		assertThat(persistedQueries.find(hash).map(documents::prepare).map(DocumentCache.Prepared::isMutation))
+				.contains(true);
+	}
+
+	@Test
+	public void testMissingScript() throws Exception {
+		assertThat(persistedQueries.seedFromScript("/nope.js")).isEqualTo(0);
+	}
+
+	@Test
+	public void testRegister() throws Exception {
+		final String hash = PersistedQueries.sha256(QUERY);
+		assertThat(persistedQueries.find(hash)).isEmpty();
+		assertThat(persistedQueries.register(hash.toUpperCase(), QUERY)).isTrue();
+		assertThat(persistedQueries.find(hash)).contains(QUERY);
+	}
+
+	@Test
+	public void testRegisterMismatch() throws Exception {
+		assertThat(persistedQueries.register(PersistedQueries.sha256("{ other }"), QUERY)).isFalse();
+		assertThat(persistedQueries.find(PersistedQueries.sha256("{ other }"))).isEmpty();
+	}
+
+	@Test
+	public void testRegisteredBounded() throws Exception {
+		final PersistedQueries bounded = new PersistedQueries(10);
+		final String[] queries = {"{ a }", "{ b }", "{ c }"};
+		for (String query : queries) {
+			bounded.register(PersistedQueries.sha256(query), query);
+		}
+		assertThat(bounded.find(PersistedQueries.sha256(queries[0]))).isEmpty();
+		assertThat(bounded.find(PersistedQueries.sha256(queries[2]))).contains(queries[2]);
+		final String longer = "{ categories }";
+		assertThat(bounded.register(PersistedQueries.sha256(longer), longer)).isTrue();
+		assertThat(bounded.find(PersistedQueries.sha256(longer))).isEmpty();
+		assertThat(bounded.find(PersistedQueries.sha256(queries[2]))).contains(queries[2]);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller.graphql;
+
+import com.github.nwillc.mysnipserver.controller.graphql.schema.SnippetSchema;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryCostTest {
+	private static final int LIST_SIZE = 100;
+	private static final String DATASTORE = "datastore { categories { key name } snippets { key category title body } }";
+	private DocumentCache documents;
+
+	@Before
+	public void setUp() throws Exception {
+		documents = new DocumentCache(new SnippetSchema().getSchema(), 10_000);
+	}
+
+	private QueryCost cost(String query) {
+		final DocumentCache.Prepared prepared = documents.prepare(query);
+		assertThat(prepared.getErrors()).isEmpty();
+		return QueryCost.of(documents.getSchema(), prepared.getDocument(), null, Collections.singletonMap("n", 5), LIST_SIZE);
+	}
+
+	@Test
+	public void testScalars() throws Exception {
+		final QueryCost cost = cost("{ category(key: \"a\") { key name } }");
+		assertThat(cost.getCost()).isEqualTo(3);
+		assertThat(cost.getDepth()).isEqualTo(2);
+	}
+
+	@Test
+	public void testDefaultListSize() throws Exception {
+		assertThat(cost("{ categories { key name } }").getCost()).isEqualTo(1 + LIST_SIZE * 2);
+	}
+
+	@Test
+	public void testFirst() throws Exception {
+		assertThat(cost("{ categories(first: 3) { key name } }").getCost()).isEqualTo(1 + 3 * 2);
+		assertThat(cost("query($n: Int) { categories(first: $n) { key } }").getCost()).isEqualTo(1 + 5);
+	}
+
+	@Test
+	public void testAliasesAdd() throws Exception {
+		final long once = cost("{ " + DATASTORE + " }").getCost();
+		assertThat(once).isEqualTo(1 + (1 + LIST_SIZE * 2) + (1 + LIST_SIZE * 4));
+		assertThat(cost("{ a: " + DATASTORE + " b: " + DATASTORE + " }").getCost()).isEqualTo(2 * once);
+		assertThat(cost("{ " + DATASTORE + " }").getDepth()).isEqualTo(3);
+	}
+
+	@Test
+	public void testFragments() throws Exception {
+		assertThat(cost("{ categories { ...names } } fragment names on category { key name }").getCost())
+				.isEqualTo(1 + LIST_SIZE * 2);
+		assertThat(cost("{ categories { ... on category { key } } }").getCost()).isEqualTo(1 + LIST_SIZE);
+	}
+
+	@Test
+	public void testListArgument() throws Exception {
+		assertThat(cost("mutation { deleteSnippets(keys: [\"a\", \"b\"]) }").getCost()).isEqualTo(1);
+		assertThat(cost("mutation { categories(input: [{name: \"a\"}, {name: \"b\"}]) { key } }").getCost())
+				.isEqualTo(1 + 2);
+	}
+}
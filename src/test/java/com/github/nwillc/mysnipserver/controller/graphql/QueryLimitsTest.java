@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller.graphql;
+
+import com.github.nwillc.mysnipserver.controller.graphql.schema.SnippetSchema;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryLimitsTest {
+
+	@Test
+	public void testParse() throws Exception {
+		assertThat(QueryLimits.parse(null)).isSameAs(QueryLimits.DEFAULT);
+		assertThat(QueryLimits.parse("200").toString()).isEqualTo("200:" + QueryLimits.DEFAULT.getMaxDepth() + ':'
+				+ QueryLimits.DEFAULT.getDefaultListSize() + ':' + QueryLimits.DEFAULT.getMaxBatch());
+		assertThat(QueryLimits.parse("200:4:10").toString()).isEqualTo("200:4:10:" + QueryLimits.DEFAULT.getMaxBatch());
+		assertThat(QueryLimits.parse("200:4:10:3").getMaxBatch()).isEqualTo(3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseNoBatch() throws Exception {
+		QueryLimits.parse("200:4:10:0");
+	}
+
+	@Test
+	public void testCheckBatch() throws Exception {
+		final QueryLimits limits = QueryLimits.parse("100:2:10:3");
+		assertThat(limits.checkBatch(3, 100)).isEmpty();
+		assertThat(limits.checkBatch(4, 10)).contains("Batch of 4 operations exceeds the limit of 3.");
+		assertThat(limits.checkBatch(2, 101)).contains("Batch cost 101 exceeds the limit of 100.");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseBad() throws Exception {
+		QueryLimits.parse("lots");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseNegative() throws Exception {
+		QueryLimits.parse("-1:2");
+	}
+
+	@Test
+	public void testCheck() throws Exception {
+		final DocumentCache documents = new DocumentCache(new SnippetSchema().getSchema(), 10_000);
+		final QueryLimits limits = QueryLimits.parse("100:2:10");
+		final QueryCost cheap = QueryCost.of(documents.getSchema(), documents.prepare("{ categories { key } }").getDocument(),
+				null, Collections.emptyMap(), limits.getDefaultListSize());
+		final QueryCost deep = QueryCost.of(documents.getSchema(),
+				documents.prepare("{ datastore { categories { key } } }").getDocument(), null, Collections.emptyMap(),
+				limits.getDefaultListSize());
+		final QueryCost costly = QueryCost.of(documents.getSchema(),
+				documents.prepare("{ categories(first: 50) { key name } }").getDocument(), null, Collections.emptyMap(),
+				limits.getDefaultListSize());
+		assertThat(limits.check(cheap)).isEmpty();
+		assertThat(limits.check(deep)).contains("Query depth 3 exceeds the limit of 2.");
+		assertThat(limits.check(costly)).contains("Query cost 101 exceeds the limit of 100.");
+		assertThat(limits.report(costly)).containsEntry("cost", 101L).containsEntry("maxCost", 100L);
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.controller.graphql.schema;
+
+import com.github.nwillc.mysnipserver.controller.DaoProvider;
+import com.github.nwillc.mysnipserver.dao.cache.QueryResultCache;
+import com.github.nwillc.mysnipserver.dao.memory.CategoryDao;
+import com.github.nwillc.mysnipserver.dao.memory.SnippetDao;
+import com.github.nwillc.mysnipserver.entity.Category;
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.github.nwillc.mysnipserver.util.cache.BoundedCache;
+import com.github.nwillc.mysnipserver.util.cache.CacheStats;
+import com.github.nwillc.mysnipserver.util.cache.Eviction;
+import com.github.nwillc.mysnipserver.util.events.Change;
+import com.github.nwillc.mysnipserver.util.events.ChangeFeed;
+import com.github.nwillc.opa.Dao;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MutationSchemaTest implements DaoProvider {
+	private CategoryDao categoryDao;
+	private SnippetDao snippetDao;
+	private GraphQL graphQL;
+	private QueryResultCache<String> queryCache;
+	private ChangeFeed changeFeed;
+
+	@Before
+	public void setUp() throws Exception {
+		categoryDao = new CategoryDao();
+		snippetDao = new SnippetDao(categoryDao);
+		graphQL = new GraphQL(new SnippetSchema().getSchema());
+		changeFeed = new ChangeFeed(10);
+		queryCache = new QueryResultCache<>(new BoundedCache<>(100, (List<String> keys) -> 1 + keys.size(), 0,
+				Eviction.LRU, new CacheStats()));
+	}
+
+	@Override
+	public Dao<String, Category> getCategoryDao() {
+		return categoryDao;
+	}
+
+	@Override
+	public Dao<String, Snippet> getSnippetDao() {
+		return snippetDao;
+	}
+
+	@Override
+	public Optional<QueryResultCache<String>> getSnippetQueryCache() {
+		return Optional.of(queryCache);
+	}
+
+	@Override
+	public Optional<ChangeFeed> getChangeFeed() {
+		return Optional.of(changeFeed);
+	}
+
+	@Test
+	public void testChangesPublished() throws Exception {
+		final List<Change> changes = new ArrayList<>();
+		changeFeed.subscribe(changes::add);
+		execute("mutation { category(key: \"sh\", name: \"Shell\") { key } }");
+		execute("mutation { snippet(key: \"ls\", category: \"sh\", title: \"list\", body: \"ls -l\") { key } }");
+		execute("mutation { deleteSnippets(keys: [\"ls\"]) }");
+		execute("mutation { deleteCategory(key: \"sh\") }");
+		assertThat(changes).extracting(Change::getOperation).containsExactly(Change.Operation.SAVE,
+				Change.Operation.SAVE, Change.Operation.DELETE, Change.Operation.DELETE);
+		assertThat(changes).extracting(Change::getEntity).containsExactly("category", "snippet", "snippet", "category");
+		assertThat(changes.get(1).getFields()).containsEntry("category", "sh").containsEntry("title", "list")
+				.doesNotContainKey("body");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testQueryCacheInvalidation() throws Exception {
+		final CacheStats stats = queryCache.getResults().getStats();
+		assertThat(titles("shell")).isEmpty();
+		execute("mutation { snippet(key: \"ls\", category: \"shell\", title: \"list\", body: \"ls -l\") { key } }");
+		assertThat(titles("shell")).containsExactly("list");
+		assertThat(titles("shell")).containsExactly("list");
+		assertThat(stats.getHits()).isEqualTo(1);
+
+		execute("mutation { snippet(category: \"go\", title: \"hello\", body: \"fmt.Println()\") { key } }");
+		assertThat(titles("shell")).containsExactly("list");
+		assertThat(stats.getHits()).isEqualTo(2);
+
+		execute("mutation { snippet(key: \"ls\", category: \"unix\", title: \"list\", body: \"ls -l\") { key } }");
+		assertThat(titles("shell")).isEmpty();
+		assertThat(stats.getHits()).isEqualTo(2);
+
+		execute("mutation { deleteSnippets(keys: [\"ls\"]) }");
+		assertThat(titles("unix")).isEmpty();
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Object> titles(String category) {
+		final Map<String, Object> data = execute("{ snippets(category: \"" + category + "\") { title } }");
+		final List<Map<String, Object>> snippets = (List<Map<String, Object>>) data.get("snippets");
+		return snippets.stream().map(snippet -> snippet.get("title")).collect(Collectors.toList());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSnippets() throws Exception {
+		final long before = snippetDao.findAll().count();
+		final Map<String, Object> data = execute("mutation { snippets(input: [" +
+				"{key: \"ls\", category: \"shell\", title: \"list\", body: \"ls -l\"}," +
+				"{category: \"shell\", title: \"copy\", body: \"cp a b\"}]) { key title } }");
+		final List<Map<String, Object>> snippets = (List<Map<String, Object>>) data.get("snippets");
+		assertThat(snippets).hasSize(2);
+		assertThat(snippets.get(0).get("key")).isEqualTo("ls");
+		assertThat(snippets.get(1).get("key")).isNotNull();
+		assertThat(snippetDao.findAll().count()).isEqualTo(before + 2);
+
+		execute("mutation { deleteSnippets(keys: [\"ls\", \"" + snippets.get(1).get("key") + "\"]) }");
+		assertThat(snippetDao.findAll().count()).isEqualTo(before);
+	}
+
+	@Test
+	public void testCategories() throws Exception {
+		final long before = categoryDao.findAll().count();
+		execute("mutation { categories(input: [{key: \"sh\", name: \"Shell\"}, {name: \"Go\"}]) { key } }");
+		assertThat(categoryDao.findOne("sh").get().getName()).isEqualTo("Shell");
+		assertThat(categoryDao.findAll().count()).isEqualTo(before + 2);
+		execute("mutation { deleteCategories(keys: [\"sh\"]) }");
+		assertThat(categoryDao.findOne("sh").isPresent()).isFalse();
+	}
+
+	@Test
+	public void testRequiresFields() throws Exception {
+		final ExecutionResult result = graphQL.execute("mutation { snippets(input: [{title: \"t\"}]) { key } }",
+				null, this, Collections.emptyMap());
+		assertThat(result.getErrors()).isNotEmpty();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> execute(String mutation) {
+		final ExecutionResult result = graphQL.execute(mutation, null, this, Collections.emptyMap());
+		assertThat(result.getErrors()).isEmpty();
+		return (Map<String, Object>) result.getData();
+	}
+}
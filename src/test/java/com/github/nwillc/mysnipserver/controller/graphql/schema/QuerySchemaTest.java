@@ -17,26 +17,65 @@
 
 package com.github.nwillc.mysnipserver.controller.graphql.schema;
 
+import com.github.nwillc.mysnipserver.controller.DaoProvider;
+import com.github.nwillc.mysnipserver.dao.memory.CategoryDao;
+import com.github.nwillc.mysnipserver.dao.memory.SnippetDao;
+import com.github.nwillc.mysnipserver.entity.Category;
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.github.nwillc.opa.Dao;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
 import graphql.annotations.GraphQLAnnotations;
+import graphql.language.Field;
+import graphql.language.FragmentSpread;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLObjectType;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import static com.github.nwillc.mysnipserver.controller.graphql.schema.SnippetSchema.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
-public class QuerySchemaTest {
+public class QuerySchemaTest implements DaoProvider {
 	private GraphQLObjectType querySchema;
+	private CategoryDao categoryDao;
+	private SnippetDao snippetDao;
+	private GraphQL graphQL;
 
 	@Before
 	public void setUp() throws Exception {
 		querySchema = GraphQLAnnotations.object(QuerySchema.class);
+		categoryDao = new CategoryDao();
+		snippetDao = new SnippetDao(categoryDao);
+		graphQL = new GraphQL(new SnippetSchema().getSchema());
+	}
+
+	@Override
+	public Dao<String, Category> getCategoryDao() {
+		return categoryDao;
+	}
+
+	@Override
+	public Dao<String, Snippet> getSnippetDao() {
+		return snippetDao;
+	}
+
+	@Override
+	public int getDefaultPageSize() {
+		return 2;
 	}
 
 	@Test
 	public void testCount() throws Exception {
-		assertThat(querySchema.getFieldDefinitions()).hasSize(5);
+		assertThat(querySchema.getFieldDefinitions()).hasSize(6);
 	}
 
 	@Test
@@ -53,7 +92,9 @@ public class QuerySchemaTest {
 	public void testCategories() throws Exception {
 		final GraphQLFieldDefinition categories = querySchema.getFieldDefinition("categories");
 		assertThat(categories).isNotNull();
-		assertThat(categories.getArguments()).hasSize(0);
+		assertThat(categories.getArguments()).hasSize(2);
+		assertThat(categories.getArgument(FIRST)).isNotNull();
+		assertThat(categories.getArgument(AFTER)).isNotNull();
 		assertThat(categories.getDataFetcher()).isNotNull();
 		assertThat(categories.getType()).isNotNull();
 	}
@@ -72,11 +113,65 @@ public class QuerySchemaTest {
 	public void testSnippets() throws Exception {
 		final GraphQLFieldDefinition snippets = querySchema.getFieldDefinition("snippets");
 		assertThat(snippets).isNotNull();
-		assertThat(snippets.getArguments()).hasSize(2);
+		assertThat(snippets.getArguments()).hasSize(4);
 		assertThat(snippets.getArgument(CATEGORY));
 		assertThat(snippets.getArgument(MATCH));
+		assertThat(snippets.getArgument(FIRST)).isNotNull();
+		assertThat(snippets.getArgument(AFTER)).isNotNull();
 		assertThat(snippets.getDataFetcher()).isNotNull();
 		assertThat(snippets.getType()).isNotNull();
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testSearch() throws Exception {
+		final GraphQLFieldDefinition search = querySchema.getFieldDefinition(SEARCH);
+		assertThat(search).isNotNull();
+		assertThat(search.getArguments()).hasSize(3);
+		assertThat(search.getArgument(MATCH)).isNotNull();
+		assertThat(search.getArgument(CATEGORY)).isNotNull();
+		assertThat(search.getArgument(FIRST)).isNotNull();
+		assertThat(search.getDataFetcher()).isNotNull();
+		assertThat(search.getType()).isNotNull();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testAfterWithoutFirstUsesDefaultPageSize() throws Exception {
+		final Map<String, Object> data = execute("{ snippets(after: \"\") { key } }");
+		assertThat((List<Object>) data.get("snippets")).hasSize(2);
+		assertThat((List<Object>) execute("{ snippets(first: 3) { key } }").get("snippets")).hasSize(3);
+		assertThat((List<Object>) execute("{ snippets { key } }").get("snippets")).hasSize(3);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSearchRanksMatchesIgnoringCase() throws Exception {
+		final String java = snippetDao.findAll().findFirst().get().getCategory();
+		snippetDao.save(new Snippet(java, "Java basics", "JAVA is a language"));
+		final List<Map<String, Object>> found =
+				(List<Map<String, Object>>) execute("{ search(match: \"java\") { title } }").get(SEARCH);
+		assertThat(found).extracting(snippet -> snippet.get(TITLE))
+				.containsExactly("Java basics", "jdk version", "import");
+		assertThat((List<Object>) execute("{ snippets(match: \"java\") { key } }").get("snippets")).hasSize(3);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> execute(String query) {
+		final ExecutionResult result = graphQL.execute(query, null, this, Collections.emptyMap());
+		assertThat(result.getErrors()).isEmpty();
+		return (Map<String, Object>) result.getData();
+	}
+
+	@Test
+	public void testSelection() throws Exception {
+		assertThat(DaoConsumer.selection(environment(new Field(TITLE), new Field(BODY)), KEY).get())
+				.containsOnly(KEY, TITLE, BODY);
+		assertThat(DaoConsumer.selection(environment(new Field(TITLE), new FragmentSpread("parts")))).isEmpty();
+	}
+
+	private static DataFetchingEnvironment environment(Selection... selections) {
+		final Field field = new Field("snippets", new SelectionSet(Arrays.asList(selections)));
+		return new DataFetchingEnvironment(null, Collections.emptyMap(), null, Collections.singletonList(field),
+				null, null, null);
+	}
+}
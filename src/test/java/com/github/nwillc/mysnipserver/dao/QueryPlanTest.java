@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao;
+
+import com.github.nwillc.mysnipserver.dao.memory.CategoryDao;
+import com.github.nwillc.mysnipserver.dao.memory.SnippetDao;
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.github.nwillc.opa.caching.CachingDao;
+import com.github.nwillc.opa.query.Query;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryPlanTest {
+    private QueryPlan<Snippet> plan;
+    private Map<String, String> parameters;
+    private SnippetDao dao;
+
+    @Before
+    public void setUp() throws Exception {
+        plan = new QueryPlan<>(Snippet.class, (generator, p) -> generator
+                .contains("title", p.apply("match"))
+                .contains("body", p.apply("match"))
+                .or()
+                .eq("category", p.apply("category"))
+                .and());
+        dao = new SnippetDao(new CategoryDao());
+        final Snippet snippet = dao.findAll().findFirst().get();
+        parameters = new HashMap<>();
+        parameters.put("category", snippet.getCategory());
+        parameters.put("match", "java");
+    }
+
+    @Test
+    public void testShape() throws Exception {
+        assertThat(plan.getShape())
+                .isEqualTo("((title CONTAINS :match OR body CONTAINS :match) AND category EQ :category)");
+        assertThat(plan.toString()).contains(plan.getShape());
+    }
+
+    @Test
+    public void testBind() throws Exception {
+        assertThat(dao.find(plan.bind(parameters)).count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testBindCached() throws Exception {
+        final Query<Snippet> query = plan.bind(parameters);
+        assertThat(plan.bind(new HashMap<>(parameters))).isSameAs(query);
+        parameters.put("match", "final");
+        assertThat(plan.bind(parameters)).isNotSameAs(query);
+        assertThat(dao.find(plan.bind(parameters)).count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testBindCachedPerPlan() throws Exception {
+        final QueryPlan<Snippet> byTitle = new QueryPlan<>(Snippet.class, (generator, p) -> generator
+                .contains("title", p.apply("match"))
+                .eq("category", p.apply("category"))
+                .and());
+        final Query<Snippet> query = plan.bind(parameters);
+        assertThat(byTitle.bind(parameters)).isNotSameAs(query);
+        assertThat(dao.find(byTitle.bind(parameters)).count()).isZero();
+        assertThat(plan.bind(parameters)).isSameAs(query);
+    }
+
+    @Test
+    public void testFind() throws Exception {
+        assertThat(PlanningDao.find(dao, plan, parameters).count()).isEqualTo(2);
+        parameters.put("match", "final");
+        assertThat(PlanningDao.find(dao, plan, parameters).count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFindNotPlanning() throws Exception {
+        assertThat(PlanningDao.find(new CachingDao<>(dao), plan, parameters).count()).isEqualTo(2);
+    }
+}
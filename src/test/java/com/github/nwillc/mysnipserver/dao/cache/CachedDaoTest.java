@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.cache;
+
+import com.github.nwillc.mysnipserver.dao.memory.CategoryDao;
+import com.github.nwillc.mysnipserver.entity.Category;
+import com.github.nwillc.mysnipserver.entity.User;
+import com.github.nwillc.mysnipserver.util.cache.BoundedCache;
+import com.github.nwillc.mysnipserver.util.cache.CacheStats;
+import com.github.nwillc.mysnipserver.util.cache.Eviction;
+import com.github.nwillc.opa.Dao;
+import com.github.nwillc.opa.memory.MemoryBackedDao;
+import com.github.nwillc.opa_impl_tests.DaoTest;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachedDaoTest extends DaoTest {
+    @Override
+    public Dao<String, TestEntity> get() {
+        return new CachedDao<String, TestEntity>(new MemoryBackedDao<>(), new BoundedCache<>(10, 0, Eviction.LRU, new CacheStats()));
+    }
+
+    @Test
+    public void testFindOneCached() throws Exception {
+        final CategoryDao categoryDao = new CategoryDao();
+        final CachedDao<String, Category> dao = new CachedDao<>(categoryDao,
+                new BoundedCache<>(10, 0, Eviction.LRU, new CacheStats()));
+        final Category category = new Category("Go");
+        dao.save(category);
+        assertThat(dao.findOne(category.getKey()).get().getName()).isEqualTo("Go");
+        assertThat(dao.findOne(category.getKey()).get().getName()).isEqualTo("Go");
+        assertThat(dao.getCache().getStats().getHits()).isEqualTo(1);
+
+        final Category renamed = new Category("Golang");
+        renamed.setKey(category.getKey());
+        dao.save(renamed);
+        assertThat(dao.findOne(category.getKey()).get().getName()).isEqualTo("Golang");
+
+        assertThat(dao.findAll(Arrays.asList("missing", category.getKey())).map(Category::getName))
+                .containsExactly("Golang");
+        dao.deleteAll(Arrays.asList(category.getKey()));
+        assertThat(dao.findOne(category.getKey()).isPresent()).isFalse();
+        assertThat(categoryDao.findOne(category.getKey()).isPresent()).isFalse();
+    }
+
+    @Test
+    public void testDelegatesPaging() throws Exception {
+        final CategoryDao categoryDao = new CategoryDao();
+        final CachedDao<String, Category> dao = new CachedDao<>(categoryDao,
+                new BoundedCache<>(10, 0, Eviction.LRU, new CacheStats()));
+        assertThat(dao.findAll(null, 2).count()).isEqualTo(Math.min(2, categoryDao.findAll().count()));
+    }
+
+    @Test
+    public void testMissesCached() throws Exception {
+        final AtomicInteger lookups = new AtomicInteger();
+        final MemoryBackedDao<String, User> users = new MemoryBackedDao<String, User>() {
+            @Override
+            public Optional<User> findOne(String key) {
+                lookups.incrementAndGet();
+                return super.findOne(key);
+            }
+        };
+        final CachedDao<String, User> dao = new CachedDao<>(users,
+                new BoundedCache<>(10, 60_000, Eviction.LRU, new CacheStats()),
+                new BoundedCache<>(10, 60_000, Eviction.LRU, new CacheStats()));
+        assertThat(dao.findOne("bob").isPresent()).isFalse();
+        assertThat(dao.findOne("bob").isPresent()).isFalse();
+        assertThat(lookups.get()).isEqualTo(1);
+
+        dao.save(new User("secret", "bob"));
+        assertThat(dao.findOne("bob").get().getPassword()).isEqualTo("secret");
+        assertThat(dao.findOne("bob").isPresent()).isTrue();
+        assertThat(lookups.get()).isEqualTo(2);
+
+        dao.delete("bob");
+        assertThat(dao.findOne("bob").isPresent()).isFalse();
+        assertThat(dao.findOne("bob").isPresent()).isFalse();
+        assertThat(lookups.get()).isEqualTo(3);
+    }
+}
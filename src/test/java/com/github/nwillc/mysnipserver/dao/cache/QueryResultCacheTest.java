@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.cache;
+
+import com.github.nwillc.mysnipserver.util.cache.BoundedCache;
+import com.github.nwillc.mysnipserver.util.cache.CacheStats;
+import com.github.nwillc.mysnipserver.util.cache.Eviction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryResultCacheTest {
+    private QueryResultCache<String> cache;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new QueryResultCache<>(new BoundedCache<>(100, (List<String> keys) -> 1 + keys.size(), 0,
+                Eviction.LRU, new CacheStats()));
+    }
+
+    @Test
+    public void testGetPut() throws Exception {
+        assertThat(cache.get("java", "io").isPresent()).isFalse();
+        cache.put("java", "io", Arrays.asList("a", "b"), cache.stamp());
+        assertThat(cache.get("java", "io").get()).containsExactly("a", "b");
+        assertThat(cache.get("java", null).isPresent()).isFalse();
+        assertThat(cache.get("java", "").isPresent()).isFalse();
+        assertThat(cache.getResults().getStats().getHitRatio()).isEqualTo(0.25);
+    }
+
+    @Test
+    public void testMatchIgnoresCaseAndWhitespace() throws Exception {
+        cache.put("java", "Java", Collections.singletonList("a"), cache.stamp());
+        assertThat(cache.get("java", "java").get()).containsExactly("a");
+        assertThat(cache.get("java", " JAVA ").get()).containsExactly("a");
+        assertThat(cache.get("Java", "java").isPresent()).isFalse();
+        assertThat(cache.getResults().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testInvalidateCategory() throws Exception {
+        cache.put("java", "io", Collections.singletonList("a"), cache.stamp());
+        cache.put("shell", "ls", Collections.singletonList("b"), cache.stamp());
+        cache.put(null, "ls", Collections.singletonList("b"), cache.stamp());
+        cache.invalidate("java");
+        assertThat(cache.get("java", "io").isPresent()).isFalse();
+        assertThat(cache.get(null, "ls").isPresent()).isFalse();
+        assertThat(cache.get("shell", "ls").isPresent()).isTrue();
+    }
+
+    @Test
+    public void testStaleResultNotCached() throws Exception {
+        final long stamp = cache.stamp();
+        cache.invalidate("java");
+        cache.put("java", "io", Collections.singletonList("a"), stamp);
+        assertThat(cache.get("java", "io").isPresent()).isFalse();
+    }
+}
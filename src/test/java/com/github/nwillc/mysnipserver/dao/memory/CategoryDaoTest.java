@@ -33,4 +33,18 @@ public class CategoryDaoTest {
         generator.eq("name", "Java");
         assertThat(dao.find(generator.getQuery()).count()).isEqualTo(1);
     }
+
+    @Test
+    public void testEqAfterOverwriteAndDelete() throws Exception {
+        final CategoryDao dao = new CategoryDao();
+        final Category category = new Category("Kotlin");
+        dao.save(category);
+        final Category renamed = new Category("Scala");
+        renamed.setKey(category.getKey());
+        dao.save(renamed);
+        assertThat(dao.find(new QueryGenerator<>(Category.class).eq("name", "Kotlin").getQuery()).count()).isEqualTo(0);
+        assertThat(dao.find(new QueryGenerator<>(Category.class).eq("name", "Scala").getQuery()).count()).isEqualTo(1);
+        dao.delete(category.getKey());
+        assertThat(dao.find(new QueryGenerator<>(Category.class).eq("name", "Scala").getQuery()).count()).isEqualTo(0);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.memory;
+
+import com.github.nwillc.mysnipserver.entity.Category;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashIndexTest {
+    private HashIndex<String, Category> index;
+    private Category category;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new HashIndex<>(Category::getName);
+        category = new Category("Java");
+        index.add(category);
+        index.add(new Category("Shell Script"));
+    }
+
+    @Test
+    public void testEq() throws Exception {
+        assertThat(index.eq("Java").get()).containsOnly(category.getKey());
+        assertThat(index.eq("Kotlin").get()).isEmpty();
+    }
+
+    @Test
+    public void testContainsNotAnswerable() throws Exception {
+        assertThat(index.contains("Java")).isNotPresent();
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        index.remove(category);
+        assertThat(index.eq("Java").get()).isEmpty();
+    }
+
+    @Test
+    public void testNullNotIndexed() throws Exception {
+        index.add(new Category());
+        assertThat(index.eq(null)).isNotPresent();
+    }
+}
@@ -18,18 +18,143 @@
 package com.github.nwillc.mysnipserver.dao.memory;
 
 
+import com.github.nwillc.mysnipserver.dao.QueryPlan;
 import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.github.nwillc.opa.memory.MemoryBackedDao;
 import com.github.nwillc.opa.query.QueryGenerator;
+import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class SnippetDaoTest {
+    private SnippetDao dao;
+
+    @Before
+    public void setUp() throws Exception {
+        dao = new SnippetDao(new CategoryDao());
+    }
+
     @Test
     public void testConstructor() throws Exception {
-        final SnippetDao dao = new SnippetDao(new CategoryDao());
         QueryGenerator<Snippet> generator = new QueryGenerator<>(Snippet.class);
         generator.eq("title", "import");
         assertThat(dao.find(generator.getQuery()).count()).isEqualTo(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testContains() throws Exception {
+        assertThat(titles(match("java"))).containsOnly("import", "jdk version");
+        assertThat(titles(match("ver"))).containsOnly("jdk version");
+        assertThat(titles(match("java.io"))).containsOnly("import");
+        assertThat(titles(match("Writer"))).isEmpty();
+    }
+
+    @Test
+    public void testContainsIgnoresCase() throws Exception {
+        assertThat(titles(match("JAVA"))).containsOnly("import", "jdk version");
+        assertThat(titles(match("reader"))).containsOnly("import");
+        assertThat(titles(match("Modifier Final"))).containsOnly("final");
+    }
+
+    @Test
+    public void testShortContainsIgnoresCase() throws Exception {
+        assertThat(titles(match("A."))).containsOnly("import");
+        assertThat(titles(match("O.R"))).containsOnly("import");
+        assertThat(titles(match("JD"))).containsOnly("jdk version");
+    }
+
+    @Test
+    public void testContainsMatchesScan() throws Exception {
+        final MemoryBackedDao<String, Snippet> scan = new MemoryBackedDao<>();
+        dao.findAll().forEach(scan::save);
+        final String[] fragments = {"Reade", "ava.io", "io", "a", ";\n", "java -", "version", "x", "", "final type"};
+        for (String fragment : fragments) {
+            assertThat(titles(match(fragment)))
+                    .as(fragment)
+                    .containsOnlyElementsOf(scan.find(match(fragment).getQuery()).map(Snippet::getTitle)
+                            .collect(Collectors.toList()))
+                    .hasSameSizeAs(scan.find(match(fragment).getQuery()).toArray());
+        }
+    }
+
+    @Test
+    public void testCategoryAndContains() throws Exception {
+        final Snippet snippet = new Snippet("shell", "java", "java -jar app.jar");
+        dao.save(snippet);
+        final QueryGenerator<Snippet> generator = match("java").eq("category", "shell").and();
+        assertThat(dao.find(generator.getQuery()).map(Snippet::getKey)).containsExactly(snippet.getKey());
+        assertThat(dao.find(new QueryGenerator<>(Snippet.class).eq("category", "shell").getQuery()).count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testContainsAfterSave() throws Exception {
+        final Snippet snippet = new Snippet("shell", "list", "ls -l");
+        dao.save(snippet);
+        assertThat(titles(match("ls"))).containsOnly("list");
+        final Snippet overwrite = new Snippet(snippet.getCategory(), "list", "dir");
+        overwrite.setKey(snippet.getKey());
+        dao.save(overwrite);
+        assertThat(titles(match("ls"))).isEmpty();
+        assertThat(titles(match("dir"))).containsExactly("list");
+    }
+
+    @Test
+    public void testContainsAfterDelete() throws Exception {
+        final Snippet snippet = new Snippet("shell", "list", "ls -l");
+        dao.save(snippet);
+        dao.delete(snippet.getKey());
+        assertThat(titles(match("ls"))).isEmpty();
+    }
+
+    @Test
+    public void testFindAllPaged() throws Exception {
+        final List<String> keys = dao.findAll().map(Snippet::getKey).sorted().collect(Collectors.toList());
+        assertThat(dao.findAll(null, 2).map(Snippet::getKey)).containsExactlyElementsOf(keys.subList(0, 2));
+        assertThat(dao.findAll(keys.get(1), 2).map(Snippet::getKey)).containsExactly(keys.get(2));
+    }
+
+    @Test
+    public void testFindPlanPaged() throws Exception {
+        final QueryPlan<Snippet> plan = new QueryPlan<>(Snippet.class, (generator, p) -> generator
+                .contains("body", p.apply("match")));
+        final List<String> keys = dao.findAll().map(Snippet::getKey).sorted().collect(Collectors.toList());
+        final Map<String, String> parameters = Collections.singletonMap("match", "a");
+        assertThat(dao.find(plan, parameters, null, 2).map(Snippet::getKey))
+                .containsExactlyElementsOf(keys.subList(0, 2));
+        assertThat(dao.find(plan, parameters, keys.get(0), 5).map(Snippet::getKey))
+                .containsExactlyElementsOf(keys.subList(1, 3));
+        final Map<String, String> reader = Collections.singletonMap("match", "Reader");
+        assertThat(dao.find(plan, reader, null, 5).map(Snippet::getTitle)).containsExactly("import");
+    }
+
+    private QueryGenerator<Snippet> match(String value) throws Exception {
+        return new QueryGenerator<>(Snippet.class)
+                .contains("title", value)
+                .contains("body", value)
+                .or();
+    }
+
+    private List<String> titles(QueryGenerator<Snippet> generator) {
+        return dao.find(generator.getQuery()).map(Snippet::getTitle).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSaveAllDeleteAll() throws Exception {
+        final Snippet list = new Snippet("shell", "list", "ls -l");
+        final Snippet copy = new Snippet("shell", "copy", "cp a b");
+        dao.saveAll(Arrays.asList(list, copy));
+        assertThat(titles(match("ls -l"))).containsOnly("list");
+        assertThat(dao.findAll(null, Integer.MAX_VALUE).map(Snippet::getKey)).contains(list.getKey(), copy.getKey());
+        dao.deleteAll(Arrays.asList(list.getKey(), copy.getKey()));
+        assertThat(titles(match("ls -l"))).isEmpty();
+        assertThat(dao.findOne(copy.getKey()).isPresent()).isFalse();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.memory;
+
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TermIndexTest {
+    private TermIndex<String, Snippet> index;
+    private Snippet snippet;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new TermIndex<>(Snippet::getBody);
+        snippet = new Snippet("java", "import", "import java.io.Reader;");
+        index.add(snippet);
+    }
+
+    @Test
+    public void testContainsIgnoresCase() throws Exception {
+        assertThat(index.contains("reader").get()).containsOnly(snippet.getKey());
+        assertThat(index.contains("JAVA").get()).containsOnly(snippet.getKey());
+    }
+
+    @Test
+    public void testTerms() throws Exception {
+        assertThat(TermIndex.terms("import java.io.Reader;")).containsOnly("import", "java", "io", "Reader");
+        assertThat(TermIndex.terms(null)).isEmpty();
+    }
+
+    @Test
+    public void testContainsTerm() throws Exception {
+        assertThat(index.contains("java").get()).containsOnly(snippet.getKey());
+    }
+
+    @Test
+    public void testContainsPartialTerm() throws Exception {
+        assertThat(index.contains("ead").get()).containsOnly(snippet.getKey());
+    }
+
+    @Test
+    public void testContainsMissing() throws Exception {
+        assertThat(index.contains("Writer").get()).isEmpty();
+    }
+
+    @Test
+    public void testNotAnswerable() throws Exception {
+        assertThat(index.contains("java.io")).isNotPresent();
+        assertThat(index.contains("")).isNotPresent();
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        index.remove(snippet);
+        assertThat(index.contains("java").get()).isEmpty();
+        assertThat(index.suffixCount()).isZero();
+    }
+
+    @Test
+    public void testSharedSuffixes() throws Exception {
+        final Snippet other = new Snippet("java", "export", "export default report;");
+        index.add(other);
+        assertThat(index.contains("port").get()).containsOnly(snippet.getKey(), other.getKey());
+        assertThat(index.contains("xport").get()).containsOnly(other.getKey());
+        index.remove(other);
+        assertThat(index.contains("port").get()).containsOnly(snippet.getKey());
+        assertThat(index.contains("default")).contains(Collections.emptySet());
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.memory;
+
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TrigramIndexTest {
+    private TrigramIndex<String, Snippet> index;
+    private Snippet snippet;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new TrigramIndex<>(Snippet::getBody);
+        snippet = new Snippet("java", "import", "import java.io.Reader;");
+        index.add(snippet);
+        index.add(new Snippet("java", "final", "modifier final type name;"));
+    }
+
+    @Test
+    public void testTrigrams() throws Exception {
+        assertThat(TrigramIndex.trigrams("Reader")).containsOnly("Rea", "ead", "ade", "der");
+        assertThat(TrigramIndex.trigrams("io")).isEmpty();
+        assertThat(TrigramIndex.trigrams(null)).isEmpty();
+    }
+
+    @Test
+    public void testContainsFragment() throws Exception {
+        assertThat(index.contains("Reade").get()).containsOnly(snippet.getKey());
+        assertThat(index.contains("ava.io").get()).containsOnly(snippet.getKey());
+    }
+
+    @Test
+    public void testContainsIgnoresCase() throws Exception {
+        assertThat(index.contains("READE").get()).containsOnly(snippet.getKey());
+        assertThat(index.contains("Modifier").get()).hasSize(1);
+    }
+
+    @Test
+    public void testContainsMissing() throws Exception {
+        assertThat(index.contains("Writer").get()).isEmpty();
+    }
+
+    @Test
+    public void testTooShort() throws Exception {
+        assertThat(index.contains("io")).isNotPresent();
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        index.remove(snippet);
+        assertThat(index.contains("Reade").get()).isEmpty();
+    }
+}
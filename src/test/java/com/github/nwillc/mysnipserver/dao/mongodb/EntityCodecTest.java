@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.mongodb;
+
+import com.github.nwillc.mysnipserver.entity.Category;
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.github.nwillc.mysnipserver.entity.User;
+import com.github.nwillc.mysnipserver.util.JsonMapper;
+import com.github.nwillc.opa.HasKey;
+import com.mongodb.MongoClient;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntityCodecTest implements JsonMapper {
+
+    @Test
+    public void testSnippetRoundTrip() throws Exception {
+        final Snippet snippet = new Snippet("java", "import", "import java.io.Reader;");
+        final Snippet decoded = roundTrip(codec(Snippet.class), snippet);
+        assertThat(decoded.toString()).isEqualTo(snippet.toString());
+    }
+
+    @Test
+    public void testCategoryRoundTrip() throws Exception {
+        final Category category = new Category("java");
+        assertThat(roundTrip(codec(Category.class), category).toString()).isEqualTo(category.toString());
+    }
+
+    @Test
+    public void testUserRoundTrip() throws Exception {
+        final User user = new User("secret", "bob");
+        final User decoded = roundTrip(codec(User.class), user);
+        assertThat(decoded.getKey()).isEqualTo("bob");
+        assertThat(decoded.getPassword()).isEqualTo("secret");
+    }
+
+    @Test
+    public void testDecodesJsonMappedDocuments() throws Exception {
+        final Snippet snippet = new Snippet("java", "final", null);
+        final BsonDocument document = Document.parse(toJson(snippet)).toBsonDocument(Document.class,
+                MongoClient.getDefaultCodecRegistry());
+        document.put("_id", new BsonObjectId());
+        final Snippet decoded = codec(Snippet.class).decode(new BsonDocumentReader(document),
+                DecoderContext.builder().build());
+        assertThat(decoded.toString()).isEqualTo(snippet.toString());
+    }
+
+    @Test
+    public void testMissingFieldsKeepDefaults() throws Exception {
+        final BsonDocument document = BsonDocument.parse("{key: \"k\", title: \"t\"}");
+        final Snippet decoded = codec(Snippet.class).decode(new BsonDocumentReader(document),
+                DecoderContext.builder().build());
+        assertThat(decoded.getKey()).isEqualTo("k");
+        assertThat(decoded.getTitle()).isEqualTo("t");
+        assertThat(decoded.getBody()).isNull();
+    }
+
+    @Test
+    public void testJsonFallback() throws Exception {
+        assertThat(EntityCodec.of(Keyless.class, MongoClient.getDefaultCodecRegistry()))
+                .isInstanceOf(EntityCodec.JsonCodec.class);
+    }
+
+    private static <T> Codec<T> codec(Class<T> tClass) {
+        final Codec codec = EntityCodec.of((Class) tClass, MongoClient.getDefaultCodecRegistry());
+        assertThat(codec).isInstanceOf(EntityCodec.class);
+        return codec;
+    }
+
+    private static <T> T roundTrip(Codec<T> codec, T entity) {
+        final BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), entity, EncoderContext.builder().build());
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    public static class Keyless extends HasKey<String> {
+        public Keyless() {
+            super(null);
+        }
+    }
+}
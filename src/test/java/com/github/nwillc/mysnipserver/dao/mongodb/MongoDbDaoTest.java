@@ -18,9 +18,34 @@
 package com.github.nwillc.mysnipserver.dao.mongodb;
 
 import com.github.fakemongo.junit.FongoRule;
+import com.github.nwillc.mysnipserver.dao.QueryPlan;
+import com.github.nwillc.mysnipserver.entity.Snippet;
 import com.github.nwillc.opa.Dao;
 import com.github.nwillc.opa_impl_tests.DaoTest;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
 import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 public class MongoDbDaoTest extends DaoTest {
@@ -31,4 +56,116 @@ public class MongoDbDaoTest extends DaoTest {
     public Dao<String, TestEntity> get() {
         return new MongoDbDao<>(fongoRule.getMongoClient(), TestEntity.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindPlan() throws Exception {
+        final MongoDbDao<String, Snippet> dao = new MongoDbDao<>(fongoRule.getMongoClient(), Snippet.class);
+        dao.save(new Snippet("java", "import", "import java.io.Reader;"));
+        dao.save(new Snippet("java", "final", "modifier final type name;"));
+        final QueryPlan<Snippet> plan = new QueryPlan<>(Snippet.class, (generator, p) -> generator
+                .contains("title", p.apply("match"))
+                .contains("body", p.apply("match"))
+                .or());
+        assertThat(dao.find(plan, Collections.singletonMap("match", "reader")).count()).isEqualTo(1);
+        assertThat(dao.find(plan, Collections.singletonMap("match", "a")).count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFindAllPaged() throws Exception {
+        final MongoDbDao<String, Snippet> dao = new MongoDbDao<>(fongoRule.getMongoClient(), Snippet.class);
+        for (String key : new String[]{"c", "a", "b"}) {
+            final Snippet snippet = new Snippet("java", key, key);
+            snippet.setKey(key);
+            dao.save(snippet);
+        }
+        assertThat(dao.findAll(null, 2).map(Snippet::getKey)).containsExactly("a", "b");
+        assertThat(dao.findAll("b", 2).map(Snippet::getKey)).containsExactly("c");
+        assertThat(dao.findAll("a", 0).count()).isEqualTo(0);
+        final QueryPlan<Snippet> plan = new QueryPlan<>(Snippet.class, (generator, p) -> generator
+                .eq("category", p.apply("category")));
+        assertThat(dao.find(plan, Collections.singletonMap("category", "java"), "a", 1).map(Snippet::getKey))
+                .containsExactly("b");
+    }
+
+    @Test
+    public void testProject() throws Exception {
+        final MongoDbDao<String, Snippet> dao = new MongoDbDao<>(fongoRule.getMongoClient(), Snippet.class);
+        final Snippet snippet = new Snippet("java", "import", "import java.io.Reader;");
+        dao.save(snippet);
+        final Dao<String, Snippet> projected = dao.project(new HashSet<>(Arrays.asList("title", "__typename")));
+        final Snippet found = projected.findOne(snippet.getKey()).get();
+        assertThat(found.getKey()).isEqualTo(snippet.getKey());
+        assertThat(found.getTitle()).isEqualTo("import");
+        assertThat(found.getBody()).isNull();
+        assertThat(projected.findAll().map(Snippet::getCategory)).containsExactly((String) null);
+        assertThat(dao.findOne(snippet.getKey()).get().getBody()).isEqualTo("import java.io.Reader;");
+    }
+
+    @Test
+    public void testSaveUpserts() throws Exception {
+        final MongoDbDao<String, Snippet> dao = new MongoDbDao<>(fongoRule.getMongoClient(), Snippet.class);
+        final Snippet snippet = new Snippet("java", "import", "import java.io.Reader;");
+        dao.save(snippet);
+        snippet.setBody("import java.io.Writer;");
+        dao.save(snippet);
+        assertThat(collection().count()).isEqualTo(1);
+        assertThat(dao.findOne(snippet.getKey()).get().getBody()).isEqualTo("import java.io.Writer;");
+    }
+
+    @Test(expected = MongoWriteException.class)
+    public void testUniqueKey() throws Exception {
+        new MongoDbDao<>(fongoRule.getMongoClient(), Snippet.class).save(new Snippet("java", "a", "a"));
+        final Document document = collection().find().first();
+        document.remove("_id");
+        collection().insertOne(document);
+    }
+
+    @Test
+    public void testSaveAllDeleteAll() throws Exception {
+        final MongoDbDao<String, Snippet> dao = new MongoDbDao<>(fongoRule.getMongoClient(), Snippet.class);
+        final Snippet a = new Snippet("java", "a", "a");
+        final Snippet b = new Snippet("java", "b", "b");
+        dao.save(a);
+        a.setBody("changed");
+        dao.saveAll(Arrays.asList(a, b));
+        assertThat(collection().count()).isEqualTo(2);
+        assertThat(dao.findOne(a.getKey()).get().getBody()).isEqualTo("changed");
+        dao.saveAll(Collections.emptyList());
+        assertThat(dao.findAll(Arrays.asList(b.getKey(), "missing", a.getKey())).map(Snippet::getTitle))
+                .containsExactly("b", "a");
+        dao.deleteAll(Arrays.asList(a.getKey(), b.getKey(), "missing"));
+        assertThat(collection().count()).isEqualTo(0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFindAllKeysInOneQuery() throws Exception {
+        final MongoCollection<Document> collection = collection();
+        final MongoCollection<Snippet> entities = mock(MongoCollection.class,
+                delegatesTo(collection.withDocumentClass(Snippet.class)));
+        final AtomicReference<MongoCollection<Snippet>> counted = new AtomicReference<>();
+        doAnswer(invocation -> {
+            counted.set(mock(MongoCollection.class, delegatesTo(collection.withDocumentClass(Snippet.class)
+                    .withCodecRegistry(invocation.getArgument(0)))));
+            return counted.get();
+        }).when(entities).withCodecRegistry(any(CodecRegistry.class));
+        final MongoCollection<Document> documents = mock(MongoCollection.class, delegatesTo(collection));
+        doReturn(entities).when(documents).withDocumentClass(Snippet.class);
+        final MongoDatabase database = mock(MongoDatabase.class);
+        when(database.getCollection(Snippet.class.getSimpleName())).thenReturn(documents);
+        final MongoClient client = mock(MongoClient.class);
+        when(client.getDatabase("snippets")).thenReturn(database);
+
+        final MongoDbDao<String, Snippet> dao = new MongoDbDao<>(client, Snippet.class);
+        final Snippet a = new Snippet("java", "a", "a");
+        final Snippet b = new Snippet("java", "b", "b");
+        dao.saveAll(Arrays.asList(a, b));
+        assertThat(dao.findAll(Arrays.asList(b.getKey(), "missing", a.getKey())).map(Snippet::getTitle))
+                .containsExactly("b", "a");
+        verify(counted.get(), times(1)).find(any(Bson.class));
+    }
+
+    private MongoCollection<Document> collection() {
+        return fongoRule.getMongoClient().getDatabase("snippets").getCollection("Snippet");
+    }
+}
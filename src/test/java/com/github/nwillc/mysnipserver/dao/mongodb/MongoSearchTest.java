@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.dao.mongodb;
+
+import com.github.fakemongo.junit.FongoRule;
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import com.github.nwillc.opa.query.QueryGenerator;
+import com.mongodb.MongoClient;
+import org.bson.BsonDocument;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MongoSearchTest {
+    private static final Set<String> TEXT_FIELDS = new HashSet<>(Arrays.asList("title", "body"));
+    @Rule
+    public FongoRule fongoRule = new FongoRule();
+
+    @Test
+    public void testRegexEscaped() throws Exception {
+        final MongoDbDao<String, Snippet> dao = new MongoDbDao<>(fongoRule.getMongoClient(), Snippet.class);
+        dao.save(new Snippet("java", "import", "import java.io.Reader;"));
+        dao.save(new Snippet("java", "other", "import javaXio"));
+        assertThat(dao.find(match("java.io").getQuery()).map(Snippet::getTitle)).containsExactly("import");
+        assertThat(dao.find(match("(").getQuery()).count()).isEqualTo(0);
+        assertThat(dao.find(match("ava.io").getQuery()).count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTextFallsBackToSubstring() throws Exception {
+        final MongoDbDao<String, Snippet> dao =
+                new MongoDbDao<>(fongoRule.getMongoClient(), Snippet.class, MongoSearch.TEXT);
+        dao.save(new Snippet("java", "import", "import java.io.Reader;"));
+        dao.save(new Snippet("java", "buffered", "new BufferedReader(in);"));
+        assertThat(dao.find(match("Reader;").getQuery()).map(Snippet::getTitle)).containsExactly("import");
+        assertThat(dao.find(match("eader(").getQuery()).map(Snippet::getTitle)).containsExactly("buffered");
+        assertThat(dao.find(match(".io").getQuery()).map(Snippet::getTitle)).containsExactly("import");
+        assertThat(render(match("eader;"))).isEqualTo(render(match("eader;"), Collections.emptySet()));
+    }
+
+    @Test
+    public void testOf() throws Exception {
+        assertThat(MongoSearch.of(null)).isEqualTo(MongoSearch.REGEX);
+        assertThat(MongoSearch.of("text")).isEqualTo(MongoSearch.TEXT);
+        assertThat(MongoSearch.of("TXET")).isEqualTo(MongoSearch.REGEX);
+    }
+
+    @Test
+    public void testTextSearchForWords() throws Exception {
+        assertThat(render(match("java"))).isEqualTo(BsonDocument.parse("{$text: {$search: '\"java\"'}}"));
+    }
+
+    @Test
+    public void testTextSearchNarrowedToField() throws Exception {
+        final BsonDocument bson = render(new QueryGenerator<>(Snippet.class).contains("title", "java"));
+        assertThat(bson.get("$text")).isEqualTo(BsonDocument.parse("{$search: '\"java\"'}"));
+        assertThat(bson.containsKey("title")).isTrue();
+    }
+
+    @Test
+    public void testTextSearchUsedOnceInAnd() throws Exception {
+        final BsonDocument bson = render(new QueryGenerator<>(Snippet.class)
+                .contains("title", "java")
+                .contains("body", "java")
+                .or()
+                .contains("title", "jdk")
+                .eq("category", "c")
+                .and());
+        assertThat(bson.get("$text")).isEqualTo(BsonDocument.parse("{$search: '\"java\"'}"));
+        assertThat(bson.toJson()).doesNotContain("jdk\\\"");
+        assertThat(bson.getString("category").getValue()).isEqualTo("c");
+    }
+
+    @Test
+    public void testNoTextSearchForFragments() throws Exception {
+        assertThat(render(match("ava.io")).containsKey("$text")).isFalse();
+        assertThat(render(match("java").not()).toJson()).doesNotContain("$text");
+    }
+
+    private static QueryGenerator<Snippet> match(String value) throws Exception {
+        return new QueryGenerator<>(Snippet.class)
+                .contains("title", value)
+                .contains("body", value)
+                .or();
+    }
+
+    private static BsonDocument render(QueryGenerator<Snippet> generator) {
+        return render(generator, TEXT_FIELDS);
+    }
+
+    private static BsonDocument render(QueryGenerator<Snippet> generator, Set<String> textFields) {
+        final MongoQueryMapper<Snippet> mapper = new MongoQueryMapper<>(textFields);
+        generator.getQuery().accept(mapper);
+        return mapper.toBson().toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry());
+    }
+}
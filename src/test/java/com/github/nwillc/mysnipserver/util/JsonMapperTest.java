@@ -21,6 +21,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 import static org.mockito.Mockito.mock;
@@ -49,6 +51,26 @@ public class JsonMapperTest implements JsonMapper {
 		assertThat(toJson(sample)).isEqualTo("{\"number\":1,\"str\":\"one\",\"flag\":true,\"dead\":null,\"bits\":[1,2,3]}");
 	}
 
+	@Test
+	public void testWriteJson() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void close() {
+				throw new IllegalStateException("Stream closed");
+			}
+		};
+		writeJson(new Sample(1L, "one", true, 1, 2, 3), out);
+		assertThat(out.toString("UTF-8")).isEqualTo(toJson(new Sample(1L, "one", true, 1, 2, 3)));
+	}
+
+	@Test
+	public void testWriteJsonException() throws Exception {
+		final Sample sample = mock(Sample.class);
+		when(sample.getNumber()).thenThrow(JsonProcessingException.class);
+		assertThatThrownBy(() -> writeJson(sample, new ByteArrayOutputStream())).isInstanceOf(RuntimeException.class)
+				.hasMessageContaining("JSON generation");
+	}
+
 	@Test
 	public void testFromJson() throws Exception {
 		Simple simple = fromJson("{ \"name\": \"foo\", \"value\": \"bar\" }", Simple.class);
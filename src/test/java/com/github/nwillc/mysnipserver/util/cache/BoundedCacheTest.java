@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BoundedCacheTest {
+    private final AtomicLong now = new AtomicLong();
+    private CacheStats stats;
+
+    @Before
+    public void setUp() throws Exception {
+        stats = new CacheStats();
+    }
+
+    @Test
+    public void testHitMiss() throws Exception {
+        final BoundedCache<String, String> cache = new BoundedCache<>(10, v -> 1, 0, Eviction.LRU, stats, now::get);
+        assertThat(cache.getIfPresent("a")).isNull();
+        cache.put("a", "A");
+        assertThat(cache.getIfPresent("a")).isEqualTo("A");
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(1);
+        assertThat(stats.getHitRatio()).isEqualTo(0.5);
+        assertThat(stats.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLru() throws Exception {
+        final BoundedCache<String, String> cache = new BoundedCache<>(2, v -> 1, 0, Eviction.LRU, stats, now::get);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.getIfPresent("a");
+        cache.put("c", "C");
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getIfPresent("b")).isNull();
+        assertThat(cache.getIfPresent("a")).isEqualTo("A");
+        assertThat(stats.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTinyLfuKeepsPopular() throws Exception {
+        final BoundedCache<String, String> cache = new BoundedCache<>(2, v -> 1, 0, Eviction.TINY_LFU, stats, now::get);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        for (int i = 0; i < 5; i++) {
+            cache.getIfPresent("a");
+            cache.getIfPresent("b");
+        }
+        for (int i = 0; i < 100; i++) {
+            final String once = "once" + i;
+            cache.getIfPresent(once);
+            cache.put(once, once);
+        }
+        assertThat(cache.getIfPresent("a")).isEqualTo("A");
+        assertThat(cache.getIfPresent("b")).isEqualTo("B");
+        assertThat(stats.getEvictions()).isZero();
+        assertThat(stats.getRejections()).isEqualTo(100);
+    }
+
+    @Test
+    public void testTinyLfuAdmitsUpdate() throws Exception {
+        final BoundedCache<String, String> cache = new BoundedCache<>(4, String::length, 0, Eviction.TINY_LFU, stats, now::get);
+        cache.put("a", "1");
+        cache.put("b", "12");
+        for (int i = 0; i < 5; i++) {
+            cache.getIfPresent("b");
+        }
+        cache.put("a", "123");
+        assertThat(cache.getIfPresent("a")).isEqualTo("123");
+        assertThat(cache.weight()).isEqualTo(3);
+        assertThat(stats.getRejections()).isZero();
+    }
+
+    @Test
+    public void testWeight() throws Exception {
+        final BoundedCache<String, String> cache = new BoundedCache<>(10, String::length, 0, Eviction.LRU, stats, now::get);
+        cache.put("a", "12345");
+        cache.put("b", "123456");
+        assertThat(cache.weight()).isEqualTo(6);
+        assertThat(cache.getIfPresent("a")).isNull();
+        cache.put("c", "12345678901");
+        assertThat(cache.getIfPresent("c")).isNull();
+        assertThat(stats.getRejections()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        final BoundedCache<String, String> cache = new BoundedCache<>(10, v -> 1, 1000, Eviction.LRU, stats, now::get);
+        cache.put("a", "A");
+        now.set(999);
+        assertThat(cache.getIfPresent("a")).isEqualTo("A");
+        now.set(1000);
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testStaleStamp() throws Exception {
+        final BoundedCache<String, String> cache = new BoundedCache<>(10, v -> 1, 0, Eviction.LRU, stats, now::get);
+        final long stamp = cache.stamp();
+        cache.invalidate("a");
+        cache.put("a", "stale", stamp);
+        assertThat(cache.getIfPresent("a")).isNull();
+        cache.put("a", "A", cache.stamp());
+        assertThat(cache.getIfPresent("a")).isEqualTo("A");
+        cache.invalidateAll();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+}
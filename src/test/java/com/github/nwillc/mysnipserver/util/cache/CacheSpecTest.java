@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.cache;
+
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheSpecTest {
+
+    @Test
+    public void testParse() throws Exception {
+        final List<CacheSpec> specs = CacheSpec.parse("Snippet=16mb:300:LRU, Category=500");
+        assertThat(specs).hasSize(2);
+        assertThat(specs.get(0).getEntity()).isEqualTo("Snippet");
+        assertThat(specs.get(0).toString()).isEqualTo("Snippet=16384kb:300:LRU");
+        assertThat(specs.get(1).toString()).isEqualTo("Category=500:0:TINY_LFU");
+        assertThat(CacheSpec.parse("")).isEmpty();
+        assertThat(CacheSpec.parse(null)).isEmpty();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingSize() throws Exception {
+        CacheSpec.parse("Snippet");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadEviction() throws Exception {
+        CacheSpec.parse("Snippet=10:0:FIFO");
+    }
+
+    @Test
+    public void testBytesCache() throws Exception {
+        final BoundedCache<String, Snippet> cache = new CacheSpec("Snippet", 1024, true, 0, Eviction.LRU)
+                .newCache("CacheSpecTest");
+        final Snippet small = new Snippet("java", "a", "b");
+        cache.put(small.getKey(), small);
+        assertThat(cache.weight()).isEqualTo(CacheSpec.estimateBytes(small));
+        final StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            body.append('x');
+        }
+        final Snippet large = new Snippet("java", "large", body.toString());
+        cache.put(large.getKey(), large);
+        assertThat(cache.getIfPresent(large.getKey())).isNull();
+        assertThat(CacheStats.all()).containsKey("CacheSpecTest");
+    }
+}
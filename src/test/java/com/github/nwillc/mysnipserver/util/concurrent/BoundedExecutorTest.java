@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeTrue;
+
+public class BoundedExecutorTest {
+    private BoundedExecutor executor;
+    private CountDownLatch release;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = new BoundedExecutor("test.workers", 1, 1);
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    private Supplier<String> blocked(String value) {
+        return () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return value;
+        };
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        assertThat(executor.submit(() -> "done").get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        assertThat(executor.getCompleted()).isEqualTo(1);
+        assertThat(executor.submit(() -> "again").get(5, TimeUnit.SECONDS)).isEqualTo("again");
+    }
+
+    @Test
+    public void testSheds() throws Exception {
+        final CompletableFuture<String> running = executor.submit(blocked("a"));
+        final CompletableFuture<String> queued = executor.submit(blocked("b"));
+        assertThatThrownBy(() -> executor.submit(() -> "c")).isInstanceOf(RejectedExecutionException.class);
+        assertThat(executor.getRejected()).isEqualTo(1);
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+        assertThat(executor.submit(() -> "d").get(5, TimeUnit.SECONDS)).isEqualTo("d");
+    }
+
+    @Test
+    public void testSubmitAllOrNothing() throws Exception {
+        final CompletableFuture<String> running = executor.submit(blocked("a"));
+        final List<Supplier<String>> tasks = Arrays.asList(() -> "b", () -> "c");
+        assertThatThrownBy(() -> executor.submitAll(tasks)).isInstanceOf(RejectedExecutionException.class);
+        assertThat(executor.getRejected()).isEqualTo(2);
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        final List<CompletableFuture<String>> futures = executor.submitAll(tasks);
+        assertThat(futures.get(0).get(5, TimeUnit.SECONDS)).isEqualTo("b");
+        assertThat(futures.get(1).get(5, TimeUnit.SECONDS)).isEqualTo("c");
+    }
+
+    @Test
+    public void testFailureReleasesCapacity() throws Exception {
+        final CompletableFuture<String> failed = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(executor.submit(() -> "ok").get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+    }
+
+    @Test
+    public void testRegistered() throws Exception {
+        assertThat(BoundedExecutor.all()).containsKey("test.workers");
+        assertThat(BoundedExecutor.all().get("test.workers")).containsEntry("threads", 1).containsEntry("queue", 1);
+    }
+
+    @Test
+    public void testPlatformByDefault() throws Exception {
+        assertThat(executor.isVirtual()).isFalse();
+        assertThat(executor.toMap()).containsEntry("virtual", false);
+    }
+
+    @Test
+    public void testPerTaskThreads() throws Exception {
+        final BoundedExecutor perTask = new BoundedExecutor("test.perTask", 1, 1,
+                Optional.of(runnable -> new Thread(runnable, "per-task")));
+        try {
+            assertThat(perTask.isVirtual()).isTrue();
+            assertThat(perTask.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS))
+                    .isEqualTo("per-task");
+        } finally {
+            perTask.shutdown();
+        }
+    }
+
+    @Test
+    public void testPerTaskSheds() throws Exception {
+        final BoundedExecutor perTask = new BoundedExecutor("test.perTask", 1, 1, Optional.of(Thread::new));
+        try {
+            final CompletableFuture<String> running = perTask.submit(blocked("a"));
+            final CompletableFuture<String> queued = perTask.submit(blocked("b"));
+            assertThatThrownBy(() -> perTask.submit(() -> "c")).isInstanceOf(RejectedExecutionException.class);
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+            assertThat(perTask.getCompleted()).isEqualTo(2);
+            assertThat(perTask.getActive()).isZero();
+            assertThat(perTask.getQueued()).isZero();
+        } finally {
+            perTask.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isAvailable());
+        final BoundedExecutor virtual = new BoundedExecutor("test.virtual", 2, 2, VirtualThreads.factory("test-"));
+        try {
+            assertThat(virtual.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS))
+                    .startsWith("test-");
+        } finally {
+            virtual.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoThreads() throws Exception {
+        new BoundedExecutor("test.none", 0, 1);
+    }
+}
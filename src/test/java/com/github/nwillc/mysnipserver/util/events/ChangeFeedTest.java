@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.events;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangeFeedTest {
+    private ChangeFeed feed;
+
+    @Before
+    public void setUp() throws Exception {
+        feed = new ChangeFeed(2);
+    }
+
+    @Test
+    public void testPublishNumbers() throws Exception {
+        final List<Change> received = new ArrayList<>();
+        feed.subscribe(received::add);
+        feed.publish(Change.deleted("snippet", "a"));
+        feed.publish(Change.deleted("snippet", "b"));
+        assertThat(received).extracting(Change::getId).containsExactly(1L, 2L);
+        assertThat(received).extracting(Change::getKey).containsExactly("a", "b");
+        assertThat(received.get(0).getOperation()).isEqualTo(Change.Operation.DELETE);
+        assertThat(received.get(0).getFields()).isEmpty();
+    }
+
+    @Test
+    public void testUnsubscribe() throws Exception {
+        final List<Change> received = new ArrayList<>();
+        final Consumer<Change> subscriber = received::add;
+        feed.subscribe(subscriber);
+        assertThat(feed.getSubscriberCount()).isEqualTo(1);
+        feed.unsubscribe(subscriber);
+        feed.publish(Change.deleted("snippet", "a"));
+        assertThat(received).isEmpty();
+        assertThat(feed.getSubscriberCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFailingSubscriberIsolated() throws Exception {
+        final List<Change> received = new ArrayList<>();
+        feed.subscribe(change -> {
+            throw new IllegalStateException("closed");
+        });
+        feed.subscribe(received::add);
+        feed.publish(Change.deleted("snippet", "a"));
+        assertThat(received).hasSize(1);
+    }
+
+    @Test
+    public void testConcurrentPublishDeliveredInOrder() throws Exception {
+        final List<Long> received = new ArrayList<>();
+        feed.subscribe(change -> received.add(change.getId()));
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> feed.publish(Change.deleted("snippet", "a")));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).hasSize(1000).isSorted();
+    }
+
+    @Test
+    public void testReplayHoldsBackPublishing() throws Exception {
+        feed.publish(Change.deleted("snippet", "a"));
+        final List<Long> received = new ArrayList<>();
+        final Thread publisher = new Thread(() -> feed.publish(Change.deleted("snippet", "b")));
+        feed.replay(0, missed -> {
+            publisher.start();
+            missed.forEach(change -> received.add(change.getId()));
+            feed.subscribe(change -> received.add(change.getId()));
+        });
+        publisher.join();
+        assertThat(received).containsExactly(1L, 2L);
+    }
+
+    @Test
+    public void testSinceRetained() throws Exception {
+        for (String key : new String[]{"a", "b", "c"}) {
+            feed.publish(Change.deleted("snippet", key));
+        }
+        assertThat(feed.since(0).stream().map(Change::getKey).collect(Collectors.toList())).containsExactly("b", "c");
+        assertThat(feed.since(2)).extracting(Change::getKey).containsExactly("c");
+        assertThat(feed.since(3)).isEmpty();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.http;
+
+import com.github.nwillc.mysnipserver.controller.TestServer;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import spark.Spark;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncDispatchTest {
+    private static final String PATH = "/async/";
+    private static CountDownLatch release;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestServer.start();
+        Spark.get(PATH + ":answer", (request, response) -> {
+            final Optional<CompletableFuture<String>> answered = AsyncDispatch.dispatched(request);
+            if (answered.isPresent()) {
+                final String answer = answered.get().join();
+                if ("no".equals(answer)) {
+                    throw new HttpException(HttpStatusCode.UNAUTHORIZED);
+                }
+                response.header("Answer", answer);
+                return answer;
+            }
+            final String answer = request.params("answer");
+            return AsyncDispatch.later(request, CompletableFuture.supplyAsync(() -> {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return answer;
+            }));
+        });
+    }
+
+    @Test
+    public void testStatusChosenLater() throws Exception {
+        release = new CountDownLatch(0);
+        assertThat(TestServer.get(PATH + "no", null).status).isEqualTo(401);
+    }
+
+    @Test
+    public void testHeadersChosenLater() throws Exception {
+        release = new CountDownLatch(1);
+        final CompletableFuture<TestServer.Reply> reply = CompletableFuture.supplyAsync(() -> {
+            try {
+                return TestServer.get(PATH + "yes", null);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertThat(reply.isDone()).isFalse();
+        release.countDown();
+        assertThat(reply.get().status).isEqualTo(200);
+        assertThat(reply.get().header("Answer")).isEqualTo("yes");
+        assertThat(reply.get().body).isEqualTo("yes");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.http;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompressingOutputStreamTest {
+    private ByteArrayOutputStream target;
+    private AtomicInteger compressions;
+
+    @Before
+    public void setUp() throws Exception {
+        target = new ByteArrayOutputStream();
+        compressions = new AtomicInteger();
+    }
+
+    private CompressingOutputStream stream(int minBytes) {
+        return (CompressingOutputStream) new Compression(minBytes, 6).wrap(target, compressions::incrementAndGet);
+    }
+
+    @Test
+    public void testBelowMinimum() throws Exception {
+        try (OutputStream out = stream(100)) {
+            out.write("small".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            assertThat(target.size()).isZero();
+        }
+        assertThat(target.toString("UTF-8")).isEqualTo("small");
+        assertThat(compressions.get()).isZero();
+    }
+
+    @Test
+    public void testAboveMinimum() throws Exception {
+        final StringBuilder text = new StringBuilder();
+        final CompressingOutputStream out = stream(100);
+        for (int i = 0; i < 100; i++) {
+            final String line = "line " + i + '\n';
+            text.append(line);
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(out.isCompressing()).isTrue();
+        out.close();
+        assertThat(compressions.get()).isEqualTo(1);
+        assertThat(target.size()).isLessThan(text.length());
+        assertThat(new String(CompressionTest.gunzip(target.toByteArray()), StandardCharsets.UTF_8))
+                .isEqualTo(text.toString());
+    }
+
+    @Test
+    public void testSingleBytes() throws Exception {
+        try (OutputStream out = stream(2)) {
+            out.write('a');
+            assertThat(compressions.get()).isZero();
+            out.write('b');
+            assertThat(compressions.get()).isEqualTo(1);
+        }
+        assertThat(new String(CompressionTest.gunzip(target.toByteArray()), StandardCharsets.UTF_8)).isEqualTo("ab");
+    }
+
+    @Test
+    public void testLeavesTargetOpen() throws Exception {
+        final OutputStream out = stream(1);
+        out.write('a');
+        out.close();
+        out.close();
+        target.write('b');
+        assertThat(target.toByteArray()[target.size() - 1]).isEqualTo((byte) 'b');
+    }
+}
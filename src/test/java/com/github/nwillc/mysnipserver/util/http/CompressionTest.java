@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.http;
+
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CompressionTest {
+
+    static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static HttpServletRequest accepting(String... headers) {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getHeaders(Compression.ACCEPT_ENCODING)).thenReturn(Collections.enumeration(Arrays.asList(headers)));
+        return request;
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        assertThat(Compression.parse(null)).isSameAs(Compression.DEFAULT);
+        assertThat(Compression.parse("512").getLevel()).isEqualTo(Compression.DEFAULT.getLevel());
+        assertThat(Compression.parse("512:9").toString()).isEqualTo("512:9");
+        assertThat(Compression.parse("0:0").isEnabled()).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadLevel() throws Exception {
+        Compression.parse("512:10");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotNumber() throws Exception {
+        Compression.parse("big");
+    }
+
+    @Test
+    public void testAccepts() throws Exception {
+        assertThat(Compression.DEFAULT.accepts(accepting("gzip, deflate, br"))).isTrue();
+        assertThat(Compression.DEFAULT.accepts(accepting("deflate", "GZIP;q=0.5"))).isTrue();
+        assertThat(Compression.DEFAULT.accepts(accepting("*"))).isTrue();
+        assertThat(Compression.DEFAULT.accepts(accepting("gzip;q=0"))).isFalse();
+        assertThat(Compression.DEFAULT.accepts(accepting("br, identity"))).isFalse();
+        assertThat(Compression.DEFAULT.accepts(accepting())).isFalse();
+        assertThat(new Compression(0, 0).accepts(accepting("gzip"))).isFalse();
+    }
+
+    @Test
+    public void testCompress() throws Exception {
+        final byte[] text = new byte[4096];
+        Arrays.fill(text, (byte) 'a');
+        final byte[] compressed = new Compression(1024, 9).compress(text);
+        assertThat(compressed.length).isLessThan(text.length);
+        assertThat(gunzip(compressed)).isEqualTo(text);
+        assertThat(new Compression(8192, 9).compress(text)).isNull();
+    }
+
+    @Test
+    public void testIncompressible() throws Exception {
+        final byte[] random = new byte[2048];
+        new java.util.Random(1).nextBytes(random);
+        assertThat(new Compression(0, 9).compress(random)).isNull();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.http;
+
+import com.github.nwillc.mysnipserver.controller.graphql.GraphqlRequest;
+import com.github.nwillc.mysnipserver.util.JsonMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LimitedInputStreamTest implements JsonMapper {
+    private static final String BODY = "{\"query\":\"{ categories { key } }\",\"variables\":{\"n\":1},\"other\":true}";
+
+    private static InputStream stream(String body, long limit) {
+        return new LimitedInputStream(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), limit);
+    }
+
+    @Test
+    public void testWithinLimit() throws Exception {
+        final GraphqlRequest request = getMapper().readValue(stream(BODY, BODY.length()), GraphqlRequest.class);
+        assertThat(request.getQuery()).isEqualTo("{ categories { key } }");
+        assertThat(request.getOperationName()).isNull();
+        assertThat(request.getVariables()).containsEntry("n", 1);
+    }
+
+    @Test
+    public void testOverLimit() throws Exception {
+        assertThatThrownBy(() -> getMapper().readValue(stream(BODY, BODY.length() - 1), GraphqlRequest.class))
+                .isInstanceOf(LimitedInputStream.LimitExceededException.class);
+    }
+
+    @Test
+    public void testSingleBytes() throws Exception {
+        final InputStream in = stream("ab", 1);
+        assertThat(in.read()).isEqualTo('a');
+        assertThatThrownBy(in::read).isInstanceOf(IOException.class).hasMessageContaining("1 bytes");
+    }
+}
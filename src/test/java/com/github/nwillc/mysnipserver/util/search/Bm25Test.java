@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.search;
+
+import com.github.nwillc.mysnipserver.entity.Snippet;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Bm25Test {
+    private Bm25<Snippet> bm25;
+
+    @Before
+    public void setUp() throws Exception {
+        bm25 = new Bm25<Snippet>()
+                .field(Snippet::getTitle, 3.0, 3.0)
+                .field(Snippet::getBody, 1.0, 30.0);
+    }
+
+    @Test
+    public void testTitleBoosted() throws Exception {
+        final Snippet inTitle = new Snippet("java", "Reader", "new BufferedInputStream(in);");
+        final Snippet inBody = new Snippet("java", "input", "new BufferedReader(in);");
+        assertThat(bm25.score(inTitle, "reader")).isGreaterThan(bm25.score(inBody, "reader"));
+    }
+
+    @Test
+    public void testFrequencyAndLength() throws Exception {
+        final Snippet twice = new Snippet("java", "a", "list list");
+        final Snippet once = new Snippet("java", "a", "list");
+        final Snippet longer = new Snippet("java", "a", "list and a lot of other words in a long body");
+        assertThat(bm25.score(twice, "list")).isGreaterThan(bm25.score(once, "list"));
+        assertThat(bm25.score(once, "list")).isGreaterThan(bm25.score(longer, "list"));
+    }
+
+    @Test
+    public void testNoMatch() throws Exception {
+        assertThat(bm25.score(new Snippet("java", "a", null), "x")).isEqualTo(0.0);
+    }
+
+    @Test
+    public void testOccurrences() throws Exception {
+        assertThat(Bm25.occurrences("aaaa", "aa")).isEqualTo(2);
+        assertThat(Bm25.occurrences("abc", "")).isEqualTo(0);
+    }
+
+    @Test
+    public void testLength() throws Exception {
+        assertThat(Bm25.length("import java.io.Reader;")).isEqualTo(4);
+        assertThat(Bm25.length(";")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2016, nwillc@gmail.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ *
+ */
+
+package com.github.nwillc.mysnipserver.util.search;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TopKTest {
+
+    @Test
+    public void testKeepsHighest() throws Exception {
+        final TopK<String> topK = new TopK<>(2);
+        topK.offer("low", 1.0);
+        topK.offer("high", 3.0);
+        topK.offer("middle", 2.0);
+        topK.offer("lowest", 0.5);
+        assertThat(topK.toList()).containsExactly("high", "middle");
+    }
+
+    @Test
+    public void testFewerThanK() throws Exception {
+        final TopK<String> topK = new TopK<>(5);
+        topK.offer("one", 1.0);
+        assertThat(topK.toList()).containsExactly("one");
+    }
+
+    @Test
+    public void testInvalidK() throws Exception {
+        assertThatThrownBy(() -> new TopK<String>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}